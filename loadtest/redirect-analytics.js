@@ -0,0 +1,81 @@
+// k6 load test for the redirect and analytics paths.
+//
+// Run it once per execution mode against the same database and compare p95/p99 latency, throughput and errors:
+//
+//   ./mvnw -Pjava21 spring-boot:run -Dspring-boot.run.arguments=--spring.threads.virtual.enabled=false
+//   k6 run loadtest/redirect-analytics.js --summary-export=target/loadtest-platform.json
+//
+//   ./mvnw -Pjava21 spring-boot:run -Dspring-boot.run.arguments=--spring.threads.virtual.enabled=true
+//   k6 run loadtest/redirect-analytics.js --summary-export=target/loadtest-virtual.json
+//
+// Environment: BASE_URL (default http://localhost:8080), LINKS (short URLs created in setup, default 200),
+// REDIRECT_RATE and ANALYTICS_RATE (requests per second, defaults 2000 and 200), DURATION (default 2m).
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const LINKS = parseInt(__ENV.LINKS || '200');
+const DURATION = __ENV.DURATION || '2m';
+
+export const options = {
+    scenarios: {
+        redirects: {
+            executor: 'constant-arrival-rate',
+            exec: 'redirect',
+            rate: parseInt(__ENV.REDIRECT_RATE || '2000'),
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 200,
+            maxVUs: 2000,
+        },
+        analytics: {
+            executor: 'constant-arrival-rate',
+            exec: 'analytics',
+            rate: parseInt(__ENV.ANALYTICS_RATE || '200'),
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 50,
+            maxVUs: 500,
+        },
+    },
+    thresholds: {
+        'http_req_failed{scenario:redirects}': ['rate<0.01'],
+        'http_req_duration{scenario:redirects}': ['p(99)<250'],
+        'http_req_duration{scenario:analytics}': ['p(99)<1000'],
+    },
+};
+
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+export function setup() {
+    const user = { username: `loadtest-${Date.now()}`, email: `loadtest-${Date.now()}@example.com`, password: 'loadtest' };
+    http.post(`${BASE_URL}/api/auth/public/register`, JSON.stringify(user), { headers: JSON_HEADERS });
+    const login = http.post(`${BASE_URL}/api/auth/public/login`,
+        JSON.stringify({ username: user.username, password: user.password }), { headers: JSON_HEADERS });
+    const token = login.json('token');
+    const auth = { headers: Object.assign({ Authorization: `Bearer ${token}` }, JSON_HEADERS) };
+
+    const codes = [];
+    for (let i = 0; i < LINKS; i++) {
+        const res = http.post(`${BASE_URL}/api/urls/shorten`,
+            JSON.stringify({ originalUrl: `https://example.com/loadtest/${i}` }), auth);
+        codes.push(res.json('shortUrl'));
+    }
+    return { token, codes };
+}
+
+function pick(codes) {
+    return codes[Math.floor(Math.random() * codes.length)];
+}
+
+export function redirect(data) {
+    const res = http.get(`${BASE_URL}/${pick(data.codes)}`, { redirects: 0, tags: { name: 'redirect' } });
+    check(res, { 'redirected': (r) => r.status === 302 });
+}
+
+export function analytics(data) {
+    const res = http.get(
+        `${BASE_URL}/api/urls/analytics/${pick(data.codes)}?startDate=2024-01-01T00:00:00&endDate=2030-01-01T00:00:00`,
+        { headers: { Authorization: `Bearer ${data.token}` }, tags: { name: 'analytics' } });
+    check(res, { 'analytics ok': (r) => r.status === 200 });
+}
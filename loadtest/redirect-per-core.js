@@ -0,0 +1,52 @@
+// k6 throughput test for the redirect path, used to compare requests/sec per core of the servlet redirect
+// (RedirectController, port 8080) with the reactive edge tier (EdgeApplication, port 8081).
+//
+// Pin each server to the same number of cores and give both the same database and cache settings, e.g.:
+//
+//   taskset -c 2,3 java -XX:ActiveProcessorCount=2 -jar target/urlshortner-0.0.1-SNAPSHOT.jar
+//   k6 run -e TARGET_URL=http://localhost:8080 loadtest/redirect-per-core.js --summary-export=target/redirect-servlet.json
+//
+//   ./mvnw -Pedge package
+//   taskset -c 2,3 java -XX:ActiveProcessorCount=2 -jar target/urlshortner-0.0.1-SNAPSHOT.jar
+//   k6 run -e TARGET_URL=http://localhost:8081 loadtest/redirect-per-core.js --summary-export=target/redirect-edge.json
+//
+// Requests/sec per core is http_reqs.rate divided by the number of pinned cores. Run k6 on other cores or another
+// host so it does not compete with the server. Links are created through the servlet API at API_URL in both runs.
+//
+// Environment: TARGET_URL (server under test), API_URL (default http://localhost:8080), LINKS (default 1000),
+// VUS (closed-model concurrency, default 256), DURATION (default 1m).
+import http from 'k6/http';
+import { check } from 'k6';
+
+const TARGET_URL = __ENV.TARGET_URL || 'http://localhost:8080';
+const API_URL = __ENV.API_URL || 'http://localhost:8080';
+const LINKS = parseInt(__ENV.LINKS || '1000');
+
+export const options = {
+    vus: parseInt(__ENV.VUS || '256'),
+    duration: __ENV.DURATION || '1m',
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+export function setup() {
+    const user = { username: `percore-${Date.now()}`, email: `percore-${Date.now()}@example.com`, password: 'loadtest' };
+    http.post(`${API_URL}/api/auth/public/register`, JSON.stringify(user), { headers: JSON_HEADERS });
+    const login = http.post(`${API_URL}/api/auth/public/login`,
+        JSON.stringify({ username: user.username, password: user.password }), { headers: JSON_HEADERS });
+    const auth = { headers: Object.assign({ Authorization: `Bearer ${login.json('token')}` }, JSON_HEADERS) };
+
+    const urls = [];
+    for (let i = 0; i < LINKS; i++) {
+        urls.push(`https://example.com/percore/${i}`);
+    }
+    const res = http.post(`${API_URL}/api/urls/shorten/bulk`, JSON.stringify(urls), auth);
+    return { codes: res.json().map((item) => item.shortUrl) };
+}
+
+export default function (data) {
+    const code = data.codes[Math.floor(Math.random() * data.codes.length)];
+    const res = http.get(`${TARGET_URL}/${code}`, { redirects: 0, tags: { name: 'redirect' } });
+    check(res, { 'redirected': (r) => r.status === 302 });
+}
@@ -0,0 +1,28 @@
+package com.iaschowrai.urlshortner.edge;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+/*
+The edge application serves only `GET /{shortUrl}` on WebFlux and R2DBC, so a redirect never blocks a thread. It is
+compiled only with the `edge` Maven profile and reads `url_mappings` from the servlet application's database, which keeps
+owning link creation, authentication and analytics. Clicks are not written here: they are forwarded to the application
+(see `ReactiveClickRecorder`), which must run with the same `url.edge.ingest-token`. Sharded `url_mappings` are not
+supported (see `EdgeRedirectService`).
+
+The servlet application's component scan also covers this package, so every edge component is restricted to reactive
+web applications.
+ */
+@SpringBootApplication
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class EdgeApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(EdgeApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .profiles("edge")
+                .run(args);
+    }
+}
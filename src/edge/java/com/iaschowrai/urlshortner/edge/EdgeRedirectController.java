@@ -0,0 +1,44 @@
+package com.iaschowrai.urlshortner.edge;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+// Non-blocking equivalent of RedirectController.redirects: 400 for an empty code, 404 for an unknown one, else 302
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class EdgeRedirectController {
+
+    private final EdgeRedirectService edgeRedirectService;
+
+    public EdgeRedirectController(EdgeRedirectService edgeRedirectService) {
+        this.edgeRedirectService = edgeRedirectService;
+    }
+
+    @GetMapping("/{shortUrl}")
+    public Mono<ResponseEntity<Void>> redirects(@PathVariable String shortUrl, ServerHttpRequest request) {
+        if (shortUrl == null || shortUrl.trim().isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        return edgeRedirectService.getOriginalUrl(shortUrl, request.getHeaders().getFirst(HttpHeaders.REFERER),
+                        request.getHeaders().getFirst(HttpHeaders.USER_AGENT),
+                        remoteAddress == null || remoteAddress.getAddress() == null
+                                ? null : remoteAddress.getAddress().getHostAddress())
+                .map(redirectTarget -> {
+                    HttpHeaders httpHeaders = new HttpHeaders();
+                    httpHeaders.add("Location", redirectTarget.getOriginalUrl());
+                    return ResponseEntity.status(HttpStatus.FOUND).headers(httpHeaders).<Void>build();
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,100 @@
+package com.iaschowrai.urlshortner.edge;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.iaschowrai.urlshortner.models.UrlMapping;
+import com.iaschowrai.urlshortner.models.User;
+import com.iaschowrai.urlshortner.dtos.EdgeClickDTO;
+import com.iaschowrai.urlshortner.service.urlservice.RedirectTarget;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/*
+The `EdgeRedirectService` resolves short codes without blocking: an in-memory Caffeine `AsyncCache` first, then a
+single R2DBC query on a miss. Concurrent misses for the same code share one in-flight lookup, and unknown codes are not
+cached. Rows are read into the shared `UrlMapping` model and cached as `RedirectTarget`s, exactly as on the servlet
+redirect path. Every resolved redirect is handed to the `ReactiveClickRecorder`.
+
+The servlet application cannot reach this cache, so a deleted link can keep redirecting here for up to
+`url.edge.cache.ttl-seconds`. Mappings that the application reports as deleted while receiving clicks are evicted
+earlier.
+
+Lookups only query the one R2DBC database, so the edge cannot serve sharded `url_mappings` (`url.shards.enabled`); it
+fails startup instead of answering every code with a 404.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class EdgeRedirectService {
+
+    private static final String FIND_BY_SHORT_URL =
+            "SELECT id, original_url, short_url, user_id FROM url_mappings WHERE short_url = :shortUrl";
+
+    private final DatabaseClient databaseClient;
+    private final ReactiveClickRecorder clickRecorder;
+    private final AsyncCache<String, RedirectTarget> cache;
+
+    public EdgeRedirectService(DatabaseClient databaseClient,
+                               ReactiveClickRecorder clickRecorder,
+                               MeterRegistry meterRegistry,
+                               @Value("${url.cache.maximum-size:100000}") long maximumSize,
+                               @Value("${url.edge.cache.ttl-seconds:60}") long ttlSeconds,
+                               @Value("${url.shards.enabled:false}") boolean sharded) {
+        if (sharded) {
+            throw new IllegalStateException("url.shards.enabled is not supported by the edge tier.");
+        }
+        this.databaseClient = databaseClient;
+        this.clickRecorder = clickRecorder;
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .<String, RedirectTarget>buildAsync(), "redirect");
+        clickRecorder.onDeleted(this::evict);
+    }
+
+    // Resolves a code and records the click with the request's Referer, User-Agent and client address
+    public Mono<RedirectTarget> getOriginalUrl(String shortUrl, String referrer, String userAgent, String remoteAddress) {
+        CompletableFuture<RedirectTarget> target = cache.get(shortUrl, (key, executor) -> findByShortUrl(key).toFuture());
+        // The future is shared with other requests for the same code, so a cancelled request must not cancel it
+        return Mono.fromFuture(target, true)
+                .doOnNext(redirectTarget -> clickRecorder.record(new EdgeClickDTO(shortUrl, redirectTarget.getId(),
+                        redirectTarget.getUserId(), LocalDateTime.now(), referrer, userAgent, remoteAddress)));
+    }
+
+    private void evict(List<Long> urlMappingIds) {
+        Set<Long> deleted = new HashSet<>(urlMappingIds);
+        cache.synchronous().asMap().values().removeIf(redirectTarget -> deleted.contains(redirectTarget.getId()));
+    }
+
+    private Mono<RedirectTarget> findByShortUrl(String shortUrl) {
+        return databaseClient.sql(FIND_BY_SHORT_URL)
+                .bind("shortUrl", shortUrl)
+                .map(EdgeRedirectService::toRedirectTarget)
+                .one();
+    }
+
+    private static RedirectTarget toRedirectTarget(Readable row) {
+        User user = new User();
+        user.setId(row.get("user_id", Long.class));
+
+        UrlMapping urlMapping = new UrlMapping();
+        urlMapping.setId(row.get("id", Long.class));
+        urlMapping.setOriginalUrl(row.get("original_url", String.class));
+        urlMapping.setShortUrl(row.get("short_url", String.class));
+        urlMapping.setUser(user);
+        return RedirectTarget.from(urlMapping);
+    }
+}
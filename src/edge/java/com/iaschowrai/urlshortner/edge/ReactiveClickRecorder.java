@@ -0,0 +1,150 @@
+package com.iaschowrai.urlshortner.edge;
+
+import com.iaschowrai.urlshortner.controller.EdgeClickController;
+import com.iaschowrai.urlshortner.dtos.EdgeClickDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+The `ReactiveClickRecorder` forwards the edge's clicks to the servlet application (`EdgeClickController`), so they go
+through the same counter, click writer, rollups, segments, sketches and live streams as any other click instead of a
+second copy of that pipeline. Redirects emit `EdgeClickDTO`s into a bounded `Sinks.Many`; a single subscriber groups
+them into batches of `url.clicks.batch-size` (or whatever arrived within `url.clicks.flush-interval-ms`) and posts each
+batch to `url.edge.click-ingest-url`. When the buffer is full, or a batch cannot be delivered, the clicks are dropped
+and counted, so a slow or unreachable application never backs up into the redirect path.
+
+The answer to each batch lists clicked mappings that have been deleted; they are handed to the registered listener,
+which evicts them from the redirect cache.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveClickRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveClickRecorder.class);
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+    // How long a redirect waits for another thread's concurrent emit before its click is dropped
+    private static final long EMIT_RETRY_NANOS = Duration.ofMillis(1).toNanos();
+
+    private final Sinks.Many<EdgeClickDTO> sink;
+    private final WebClient webClient;
+    private final String ingestUrl;
+    private final String ingestToken;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration requestTimeout;
+
+    private final Counter forwardedCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+
+    private volatile Consumer<List<Long>> deletedListener = ids -> { };
+    private CompletableFuture<Void> writer;
+
+    public ReactiveClickRecorder(WebClient.Builder webClientBuilder,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${url.edge.click-ingest-url}") String ingestUrl,
+                                 @Value("${url.edge.ingest-token}") String ingestToken,
+                                 @Value("${url.clicks.queue-capacity:100000}") int queueCapacity,
+                                 @Value("${url.clicks.batch-size:500}") int batchSize,
+                                 @Value("${url.clicks.flush-interval-ms:1000}") long flushIntervalMs,
+                                 @Value("${url.edge.click-ingest-timeout-ms:5000}") long requestTimeoutMs) {
+        this.sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<EdgeClickDTO>get(queueCapacity).get());
+        this.webClient = webClientBuilder.build();
+        this.ingestUrl = ingestUrl;
+        this.ingestToken = ingestToken;
+        this.batchSize = batchSize;
+        this.flushInterval = Duration.ofMillis(flushIntervalMs);
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+
+        this.forwardedCounter = meterRegistry.counter("url.edge.clicks.forwarded");
+        this.droppedCounter = meterRegistry.counter("url.edge.clicks.dropped");
+        this.failedCounter = meterRegistry.counter("url.edge.clicks.failed");
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = sink.asFlux()
+                .bufferTimeout(batchSize, flushInterval, true)
+                .concatMap(this::forwardBatch)
+                .then()
+                .toFuture();
+    }
+
+    // Called with the ids of deleted mappings reported back by the application
+    public void onDeleted(Consumer<List<Long>> deletedListener) {
+        this.deletedListener = deletedListener;
+    }
+
+    /**
+     * Emits a click for forwarding without blocking.
+     * Returns false if the click was dropped because the buffer is full or the sink stayed contended.
+     */
+    public boolean record(EdgeClickDTO click) {
+        // FAIL_NON_SERIALIZED only means another thread is emitting at this instant; retry briefly. Not emitNext with a
+        // busyLooping handler: on a full buffer that would terminate the sink with an overflow error
+        Sinks.EmitResult result = sink.tryEmitNext(click);
+        long deadline = System.nanoTime() + EMIT_RETRY_NANOS;
+        while (result == Sinks.EmitResult.FAIL_NON_SERIALIZED && System.nanoTime() - deadline < 0) {
+            Thread.onSpinWait();
+            result = sink.tryEmitNext(click);
+        }
+
+        if (result.isFailure()) {
+            droppedCounter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // Completes the sink so the buffered clicks are forwarded before shutdown
+    @PreDestroy
+    public void stop() {
+        sink.tryEmitComplete();
+        try {
+            writer.get(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            logger.error("Click forwarder did not finish before shutdown: {}", e.getMessage());
+        }
+    }
+
+    private Mono<Void> forwardBatch(List<EdgeClickDTO> batch) {
+        return webClient.post()
+                .uri(ingestUrl)
+                .header(EdgeClickController.TOKEN_HEADER, ingestToken)
+                .bodyValue(batch)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<Long>>() { })
+                .timeout(requestTimeout)
+                .doOnNext(deleted -> {
+                    if (!deleted.isEmpty()) {
+                        deletedListener.accept(deleted);
+                    }
+                })
+                .doOnSuccess(ignored -> forwardedCounter.increment(batch.size()))
+                .then()
+                .onErrorResume(e -> {
+                    failedCounter.increment(batch.size());
+                    logger.error("Failed to forward {} clicks: {}", batch.size(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
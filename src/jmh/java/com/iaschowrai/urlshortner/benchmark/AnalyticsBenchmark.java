@@ -0,0 +1,95 @@
+package com.iaschowrai.urlshortner.benchmark;
+
+import com.iaschowrai.urlshortner.dtos.ClickEventDTO;
+import com.iaschowrai.urlshortner.models.ClickEvent;
+import com.iaschowrai.urlshortner.models.UrlClickRollupDaily;
+import com.iaschowrai.urlshortner.models.UrlClickRollupHourly;
+import com.iaschowrai.urlshortner.models.UrlMapping;
+import com.iaschowrai.urlshortner.repository.UrlClickRollupDailyRepository;
+import com.iaschowrai.urlshortner.repository.UrlClickRollupHourlyRepository;
+import com.iaschowrai.urlshortner.repository.UrlMappingRepository;
+import com.iaschowrai.urlshortner.service.urlservice.RedirectTarget;
+import com.iaschowrai.urlshortner.service.urlservice.UrlMappingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+Clicks-per-day analytics over a 30 day range. `entityGrouping` is the original implementation, grouping one
+`ClickEvent` entity per click in the JVM; `getClickEventsByDate` is the current service path reading daily rollups. The
+rollup path should stay flat as the number of clicks grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnalyticsBenchmark {
+
+    private static final int DAYS = 30;
+    private static final LocalDateTime START = LocalDate.of(2026, 1, 1).atStartOfDay();
+    private static final LocalDateTime END = START.plusDays(DAYS);
+
+    @Param({"1000", "100000", "1000000"})
+    public int events;
+
+    private List<ClickEvent> clickEvents;
+    private UrlMappingService urlMappingService;
+
+    @Setup
+    public void setUp() {
+        UrlMapping urlMapping = BenchmarkFixtures.urlMapping(1L, "bench01");
+        long spacingSeconds = DAYS * 86_400L / events;
+        clickEvents = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            ClickEvent clickEvent = new ClickEvent();
+            clickEvent.setUrlMapping(urlMapping);
+            clickEvent.setClickDate(START.plusSeconds(i * spacingSeconds));
+            clickEvents.add(clickEvent);
+        }
+
+        List<UrlClickRollupDaily> dailyRollups = clickEvents.stream()
+                .collect(Collectors.groupingBy(click -> click.getClickDate().toLocalDate(), Collectors.counting()))
+                .entrySet().stream()
+                .map(entry -> {
+                    UrlClickRollupDaily rollup = new UrlClickRollupDaily();
+                    rollup.setUrlMappingId(1L);
+                    rollup.setBucketDate(entry.getKey());
+                    rollup.setClickCount(entry.getValue());
+                    return rollup;
+                })
+                .toList();
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        urlMappingService = BenchmarkFixtures.urlMappingService(
+                BenchmarkFixtures.repository(UrlMappingRepository.class, Map.of("findRedirectTargetByShortUrl", args -> RedirectTarget.from(urlMapping))),
+                BenchmarkFixtures.repository(UrlClickRollupDailyRepository.class,
+                        Map.of("findByUrlMappingIdAndBucketDateBetween", args -> dailyRollups)),
+                BenchmarkFixtures.repository(UrlClickRollupHourlyRepository.class,
+                        Map.of("findByUrlMappingIdAndBucketStartBetween", args -> List.<UrlClickRollupHourly>of())),
+                BenchmarkFixtures.clickEventRecorder(meterRegistry), 1000, meterRegistry);
+    }
+
+    @Benchmark
+    public List<ClickEventDTO> entityGrouping() {
+        return clickEvents.stream()
+                .collect(Collectors.groupingBy(click -> click.getClickDate().toLocalDate(), Collectors.counting()))
+                .entrySet()
+                .stream()
+                .map(entry -> new ClickEventDTO(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<ClickEventDTO> getClickEventsByDate() {
+        return urlMappingService.getClickEventsByDate("bench01", START, END);
+    }
+}
@@ -0,0 +1,161 @@
+package com.iaschowrai.urlshortner.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iaschowrai.urlshortner.models.UrlMapping;
+import com.iaschowrai.urlshortner.models.User;
+import com.iaschowrai.urlshortner.repository.ClickEventRepository;
+import com.iaschowrai.urlshortner.repository.JpaUrlMappingStore;
+import com.iaschowrai.urlshortner.repository.ReadYourWrites;
+import com.iaschowrai.urlshortner.repository.UrlClickRollupDailyRepository;
+import com.iaschowrai.urlshortner.repository.UrlClickRollupHourlyRepository;
+import com.iaschowrai.urlshortner.repository.UrlClickSketchDailyRepository;
+import com.iaschowrai.urlshortner.repository.UrlMappingRepository;
+import com.iaschowrai.urlshortner.repository.UrlMappingShards;
+import com.iaschowrai.urlshortner.repository.UserClickRollupDailyRepository;
+import com.iaschowrai.urlshortner.service.clicklog.ClickEnricher;
+import com.iaschowrai.urlshortner.service.clicklog.ClickQueryEngine;
+import com.iaschowrai.urlshortner.service.clicklog.ClickSegmentLog;
+import com.iaschowrai.urlshortner.service.clicklog.IpCountryDatabase;
+import com.iaschowrai.urlshortner.service.clickservice.ClickCounter;
+import com.iaschowrai.urlshortner.service.clickservice.ClickEventRecorder;
+import com.iaschowrai.urlshortner.service.clickservice.ClickOverflowPolicy;
+import com.iaschowrai.urlshortner.service.clickservice.ClickRollupService;
+import com.iaschowrai.urlshortner.service.clickservice.ClickStreamHub;
+import com.iaschowrai.urlshortner.service.clickservice.DeletedUrlMappings;
+import com.iaschowrai.urlshortner.service.sketch.ClickSketchService;
+import com.iaschowrai.urlshortner.service.urlservice.AnalyticsSource;
+import com.iaschowrai.urlshortner.service.urlservice.RandomShortCodeGenerator;
+import com.iaschowrai.urlshortner.service.urlservice.ShortCodeFilter;
+import com.iaschowrai.urlshortner.service.urlservice.UrlMappingCache;
+import com.iaschowrai.urlshortner.service.urlservice.UrlMappingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/*
+Wiring for the benchmarks: real services on top of in-memory stand-ins for everything that would talk to MySQL, so the
+numbers measure our code rather than the database.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    // Repository proxy answering only the named methods; anything else fails loudly
+    @SuppressWarnings("unchecked")
+    static <T> T repository(Class<T> type, Map<String, Function<Object[], Object>> handlers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> handler = handlers.get(method.getName());
+            if (handler != null) {
+                return handler.apply(args);
+            }
+            return switch (method.getName()) {
+                case "toString" -> type.getSimpleName() + "Stub";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            };
+        });
+    }
+
+    // JdbcTemplate whose batch writes are no-ops
+    static JdbcTemplate noOpJdbcTemplate() {
+        return new JdbcTemplate() {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                           ParameterizedPreparedStatementSetter<T> pss) {
+                return new int[0][];
+            }
+        };
+    }
+
+    static PlatformTransactionManager noOpTransactionManager() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+
+    static UrlMapping urlMapping(long id, String shortUrl) {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("benchmark");
+        UrlMapping urlMapping = new UrlMapping();
+        urlMapping.setId(id);
+        urlMapping.setShortUrl(shortUrl);
+        urlMapping.setOriginalUrl("https://example.com/articles/" + id);
+        urlMapping.setUser(user);
+        return urlMapping;
+    }
+
+    static ClickEventRecorder clickEventRecorder(SimpleMeterRegistry meterRegistry) {
+        return new ClickEventRecorder(noOpJdbcTemplate(), noOpTransactionManager(), meterRegistry, List.of(),
+                new DeletedUrlMappings(600_000, 1000), 1 << 20, 500, ClickOverflowPolicy.DROP);
+    }
+
+    static UrlMappingService urlMappingService(UrlMappingRepository urlMappingRepository,
+                                               UrlClickRollupDailyRepository dailyRepository,
+                                               UrlClickRollupHourlyRepository hourlyRepository,
+                                               ClickEventRecorder clickEventRecorder,
+                                               long cacheSize,
+                                               SimpleMeterRegistry meterRegistry) {
+        ClickRollupService clickRollupService = new ClickRollupService(noOpJdbcTemplate(), hourlyRepository,
+                dailyRepository, repository(UserClickRollupDailyRepository.class, Map.of()), false, false);
+        // Disabled, so nothing is written to disk during a run
+        ClickEnricher clickEnricher = new ClickEnricher(new IpCountryDatabase(""));
+        ClickSegmentLog clickSegmentLog = new ClickSegmentLog(clickEnricher, meterRegistry, false, "", 1, 60, 0);
+        // Unsharded: url_mappings and click counts live in the one application database
+        UrlMappingShards shards = new UrlMappingShards(
+                new UrlMappingShards.Shard("primary", noOpJdbcTemplate(), new TransactionTemplate(noOpTransactionManager())),
+                List.of(), false);
+        DeletedUrlMappings deletedUrlMappings = new DeletedUrlMappings(600_000, 1000);
+        return new UrlMappingService(
+                new JpaUrlMappingStore(urlMappingRepository, noOpJdbcTemplate(), noOpTransactionManager(),
+                        repository(EntityManagerFactory.class, Map.of("getCache", args -> repository(Cache.class, Map.of())))),
+                repository(ClickEventRepository.class, Map.of()),
+                new UrlMappingCache(cacheSize, 600, meterRegistry),
+                clickEventRecorder,
+                new ClickCounter(shards, meterRegistry),
+                deletedUrlMappings,
+                clickRollupService,
+                AnalyticsSource.ROLLUPS,
+                new RandomShortCodeGenerator(),
+                // Never built, so every code passes through to the cache as before
+                new ShortCodeFilter(shards, meterRegistry, false, 1, 0.01),
+                clickSegmentLog,
+                new ClickQueryEngine(clickSegmentLog, 1, 65536),
+                new ClickSketchService(noOpJdbcTemplate(), noOpTransactionManager(),
+                        repository(UrlClickSketchDailyRepository.class, Map.of()), clickEnricher, deletedUrlMappings,
+                        meterRegistry, 12, 32),
+                // No subscribers, so publish is a single map lookup per click
+                new ClickStreamHub(meterRegistry, 1, 1000, 1000, 1, 1),
+                // Single data source, as in the default configuration
+                new ReadYourWrites(false, 0, 1),
+                new ObjectMapper(),
+                500,
+                1000);
+    }
+}
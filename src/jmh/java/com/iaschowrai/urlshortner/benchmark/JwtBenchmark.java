@@ -0,0 +1,60 @@
+package com.iaschowrai.urlshortner.benchmark;
+
+import com.iaschowrai.urlshortner.security.JwtUtils;
+import com.iaschowrai.urlshortner.service.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+Token verification as done by `JwtAuthenticationFilter` for every authenticated request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private static final String SECRET =
+            "8f2adf91425fbbe36d4c1c5cb201ae91a5e17dd55708535dae56a58108af89bde978de06b0dbe2db928519d391b3e096298efe6e3b95139d59681346187e31bf";
+
+    // 0 effectively disables the verified-token cache, so every call verifies the signature
+    @Param({"10000", "0"})
+    public long verifiedTokenCacheSize;
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMS", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedTokenCacheSize", verifiedTokenCacheSize);
+        jwtUtils.init();
+        token = jwtUtils.generateToken(new UserDetailsImpl(1L, "benchmark", "benchmark@example.com", "",
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtils.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUserNameFromJwtToken() {
+        return jwtUtils.getUserNameFromJwtToken(token);
+    }
+
+    // What the filter does per request
+    @Benchmark
+    public String filterPath() {
+        return jwtUtils.parseAndValidate(token).getSubject();
+    }
+}
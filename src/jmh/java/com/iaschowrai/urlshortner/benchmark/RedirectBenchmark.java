@@ -0,0 +1,83 @@
+package com.iaschowrai.urlshortner.benchmark;
+
+import com.iaschowrai.urlshortner.models.UrlMapping;
+import com.iaschowrai.urlshortner.repository.UrlClickRollupDailyRepository;
+import com.iaschowrai.urlshortner.repository.UrlClickRollupHourlyRepository;
+import com.iaschowrai.urlshortner.repository.UrlMappingRepository;
+import com.iaschowrai.urlshortner.service.clickservice.ClickEventRecorder;
+import com.iaschowrai.urlshortner.service.urlservice.RedirectTarget;
+import com.iaschowrai.urlshortner.service.urlservice.UrlMappingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+`UrlMappingService.getOriginalUrl` against an in-memory repository. A cache size of 0 forces every lookup through the
+repository; the click writer is drained by a background thread as in production.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedirectBenchmark {
+
+    private static final int LINKS = 10_000;
+
+    @Param({"100000", "0"})
+    public long cacheSize;
+
+    private UrlMappingService urlMappingService;
+    private ClickEventRecorder clickEventRecorder;
+    private String[] shortUrls;
+    private Thread writer;
+
+    @Setup
+    public void setUp() {
+        Map<String, UrlMapping> mappings = new HashMap<>();
+        shortUrls = new String[LINKS];
+        for (int i = 0; i < LINKS; i++) {
+            shortUrls[i] = String.format("b%07d", i);
+            mappings.put(shortUrls[i], BenchmarkFixtures.urlMapping(i + 1, shortUrls[i]));
+        }
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UrlMappingRepository urlMappingRepository = BenchmarkFixtures.repository(UrlMappingRepository.class,
+                Map.of("findBySimpleNaturalId", args -> Optional.ofNullable(mappings.get((String) args[0]))));
+        clickEventRecorder = BenchmarkFixtures.clickEventRecorder(meterRegistry);
+        urlMappingService = BenchmarkFixtures.urlMappingService(urlMappingRepository,
+                BenchmarkFixtures.repository(UrlClickRollupDailyRepository.class, Map.of()),
+                BenchmarkFixtures.repository(UrlClickRollupHourlyRepository.class, Map.of()),
+                clickEventRecorder, cacheSize, meterRegistry);
+
+        writer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                clickEventRecorder.flush();
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "benchmark-click-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        writer.interrupt();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public RedirectTarget getOriginalUrl() {
+        return urlMappingService.getOriginalUrl(shortUrls[ThreadLocalRandom.current().nextInt(LINKS)]);
+    }
+}
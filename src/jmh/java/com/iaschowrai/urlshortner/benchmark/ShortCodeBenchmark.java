@@ -0,0 +1,50 @@
+package com.iaschowrai.urlshortner.benchmark;
+
+import com.iaschowrai.urlshortner.models.ShortCodeSequence;
+import com.iaschowrai.urlshortner.repository.ShortCodeSequenceRepository;
+import com.iaschowrai.urlshortner.service.urlservice.RandomShortCodeGenerator;
+import com.iaschowrai.urlshortner.service.urlservice.SequenceShortCodeGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/*
+Cost of producing one short code with each generator. The sequence generator's lease goes to an in-memory row, so the
+numbers show the amortised in-memory path plus one lease per block.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShortCodeBenchmark {
+
+    private RandomShortCodeGenerator randomGenerator;
+    private SequenceShortCodeGenerator sequenceGenerator;
+
+    @Setup
+    public void setUp() {
+        ShortCodeSequence sequence = new ShortCodeSequence("short_code", 1);
+        ShortCodeSequenceRepository sequenceRepository = BenchmarkFixtures.repository(ShortCodeSequenceRepository.class,
+                Map.of("findByName", args -> Optional.of(sequence)));
+
+        randomGenerator = new RandomShortCodeGenerator();
+        sequenceGenerator = new SequenceShortCodeGenerator(sequenceRepository,
+                BenchmarkFixtures.noOpTransactionManager(), 10_000, true, 42L);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String random() {
+        return randomGenerator.nextShortCode();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String sequence() {
+        return sequenceGenerator.nextShortCode();
+    }
+}
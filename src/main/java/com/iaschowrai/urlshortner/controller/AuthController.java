@@ -4,11 +4,14 @@ package com.iaschowrai.urlshortner.controller;
 import com.iaschowrai.urlshortner.dtos.LoginRequest;
 import com.iaschowrai.urlshortner.dtos.RegisterRequest;
 import com.iaschowrai.urlshortner.models.User;
+import com.iaschowrai.urlshortner.service.UserDetailsImpl;
 import com.iaschowrai.urlshortner.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -36,4 +39,12 @@ public class AuthController {
         userService.registerUser(registerRequest);
         return ResponseEntity.status(HttpStatus.CREATED).body("User registered successfully");
     }
+
+
+    @PostMapping("/revoke")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> revokeTokens(@AuthenticationPrincipal UserDetailsImpl userDetails){
+        userService.revokeTokens(userDetails);
+        return ResponseEntity.ok("All tokens revoked, please log in again");
+    }
 }
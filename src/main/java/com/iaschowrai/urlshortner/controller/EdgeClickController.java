@@ -0,0 +1,62 @@
+package com.iaschowrai.urlshortner.controller;
+
+import com.iaschowrai.urlshortner.dtos.EdgeClickDTO;
+import com.iaschowrai.urlshortner.service.urlservice.UrlMappingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/*
+The `EdgeClickController` takes the clicks of redirects served by the edge tier. The edge only resolves codes; its clicks
+are posted here in batches and go through the same `ClickCounter`, `ClickEventRecorder` (with rollups, segments and
+sketches) and `ClickStreamHub` as local redirects. It only exists when `url.edge.ingest-token` is set, and every batch
+must carry that token, since the endpoint is outside the JWT-protected API. A blank token fails startup rather than
+letting an empty header through.
+ */
+@RestController
+@ConditionalOnProperty(name = "url.edge.ingest-token")
+public class EdgeClickController {
+
+    public static final String TOKEN_HEADER = "X-Edge-Token";
+
+    private static final Logger logger = LoggerFactory.getLogger(EdgeClickController.class);
+
+    private final UrlMappingService urlMappingService;
+    private final byte[] ingestToken;
+
+    public EdgeClickController(UrlMappingService urlMappingService,
+                               @Value("${url.edge.ingest-token}") String ingestToken) {
+        if (!StringUtils.hasText(ingestToken)) {
+            throw new IllegalStateException("url.edge.ingest-token is set but blank.");
+        }
+        this.urlMappingService = urlMappingService;
+        this.ingestToken = ingestToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * API for the edge tier to record a batch of clicks.
+     * Returns the ids of clicked mappings that have been deleted, which the edge evicts from its cache.
+     */
+    @PostMapping("/internal/edge/clicks")
+    public ResponseEntity<List<Long>> recordClicks(@RequestHeader(value = TOKEN_HEADER, required = false) String token,
+                                                   @RequestBody List<EdgeClickDTO> clicks) {
+        // Constant-time comparison, so the token cannot be guessed byte by byte
+        if (token == null || !MessageDigest.isEqual(ingestToken, token.getBytes(StandardCharsets.UTF_8))) {
+            logger.warn("Rejected edge clicks with a missing or wrong token.");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(urlMappingService.recordEdgeClicks(clicks));
+    }
+}
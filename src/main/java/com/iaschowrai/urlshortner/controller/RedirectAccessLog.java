@@ -0,0 +1,42 @@
+package com.iaschowrai.urlshortner.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+The `RedirectAccessLog` writes one line per sampled redirect to the `redirect-access` logger, so redirect logging costs
+a random number draw instead of formatting and writing a line for every request. One in
+`url.access-log.redirect.sample-rate` redirects and 404s are logged (1 logs all, 0 none); bad requests and server errors
+are always logged. Lines carry the short code, status and latency, never the target URL.
+ */
+@Component
+public class RedirectAccessLog {
+
+    private static final Logger accessLogger = LoggerFactory.getLogger("redirect-access");
+
+    private final int sampleRate;
+
+    public RedirectAccessLog(@Value("${url.access-log.redirect.sample-rate:1}") int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public void log(String shortUrl, int status, long startNanos) {
+        if (!accessLogger.isInfoEnabled() || !shouldLog(status)) {
+            return;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        accessLogger.info("status={} code={} micros={}", status, shortUrl, micros);
+    }
+
+    private boolean shouldLog(int status) {
+        if (status == 400 || status >= 500) {
+            return true;
+        }
+        return sampleRate > 0 && (sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0);
+    }
+}
@@ -1,9 +1,8 @@
 package com.iaschowrai.urlshortner.controller;
 
-import com.iaschowrai.urlshortner.models.UrlMapping;
+import com.iaschowrai.urlshortner.service.urlservice.RedirectTarget;
 import com.iaschowrai.urlshortner.service.urlservice.UrlMappingService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -16,30 +15,40 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 @RequestMapping
 public class RedirectController {
-    private static final Logger logger = LoggerFactory.getLogger(RedirectController.class);
 
     @Autowired
     private final UrlMappingService urlMappingService;
+    private final RedirectAccessLog redirectAccessLog;
 
-    public RedirectController(UrlMappingService urlMappingService) {
+    public RedirectController(UrlMappingService urlMappingService, RedirectAccessLog redirectAccessLog) {
         this.urlMappingService = urlMappingService;
+        this.redirectAccessLog = redirectAccessLog;
     }
 
     @GetMapping("/{shortUrl}")
-    public ResponseEntity<Void> redirects(@PathVariable String shortUrl) {
+    public ResponseEntity<Void> redirects(@PathVariable String shortUrl, HttpServletRequest request) {
+        long started = System.nanoTime();
         if (shortUrl == null || shortUrl.trim().isEmpty()) {
-            logger.warn("Received an empty or null short URL.");
+            redirectAccessLog.log(shortUrl, HttpStatus.BAD_REQUEST.value(), started);
             return ResponseEntity.badRequest().build();
         }
 
-        UrlMapping urlMapping = urlMappingService.getOriginalUrl(shortUrl);
-        if (urlMapping == null) {
-            logger.warn("Short URL not found: {}", shortUrl);
+        RedirectTarget redirectTarget;
+        try {
+            redirectTarget = urlMappingService.getOriginalUrl(shortUrl, request.getHeader(HttpHeaders.REFERER),
+                    request.getHeader(HttpHeaders.USER_AGENT), request.getRemoteAddr());
+        } catch (RuntimeException e) {
+            redirectAccessLog.log(shortUrl, HttpStatus.INTERNAL_SERVER_ERROR.value(), started);
+            throw e;
+        }
+
+        if (redirectTarget == null) {
+            redirectAccessLog.log(shortUrl, HttpStatus.NOT_FOUND.value(), started);
             return ResponseEntity.notFound().build();
         }else  {
-            logger.info("Redirecting short URL: {} to {}", shortUrl, urlMapping.getOriginalUrl());
             HttpHeaders httpHeaders = new HttpHeaders();
-            httpHeaders.add("Location", urlMapping.getOriginalUrl());
+            httpHeaders.add("Location", redirectTarget.getOriginalUrl());
+            redirectAccessLog.log(shortUrl, HttpStatus.FOUND.value(), started);
             return ResponseEntity.status(HttpStatus.FOUND).headers(httpHeaders).build();
         }
     }
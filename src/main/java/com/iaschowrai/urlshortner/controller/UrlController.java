@@ -1,17 +1,35 @@
 package com.iaschowrai.urlshortner.controller;
 
 
+import com.iaschowrai.urlshortner.dtos.AudienceDTO;
 import com.iaschowrai.urlshortner.dtos.ClickEventDTO;
+import com.iaschowrai.urlshortner.dtos.ClickQueryResultDTO;
 import com.iaschowrai.urlshortner.dtos.UrlMappingDTO;
+import com.iaschowrai.urlshortner.dtos.UrlMappingPageDTO;
 import com.iaschowrai.urlshortner.models.User;
+import com.iaschowrai.urlshortner.service.UserDetailsImpl;
 import com.iaschowrai.urlshortner.service.UserService;
+import com.iaschowrai.urlshortner.service.clicklog.ClickDimension;
+import com.iaschowrai.urlshortner.service.clicklog.ClickGroupBy;
+import com.iaschowrai.urlshortner.service.clickservice.ClickStreamHub;
+import com.iaschowrai.urlshortner.service.urlservice.BulkShortenService;
 import com.iaschowrai.urlshortner.service.urlservice.UrlMappingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.rmi.MarshalledObject;
 import java.security.Principal;
 import java.time.LocalDate;
@@ -28,10 +46,27 @@ public class UrlController {
 
     private final UrlMappingService urlMappingService;
     private final UserService userService;
+    private final BulkShortenService bulkShortenService;
+    private final ClickStreamHub clickStreamHub;
+    private final Counter shortenedCounter;
+    private final Counter bulkShortenedCounter;
 
-    public UrlController(UrlMappingService urlMappingService, UserService userService) {
+    public UrlController(UrlMappingService urlMappingService, UserService userService,
+                         BulkShortenService bulkShortenService, ClickStreamHub clickStreamHub,
+                         MeterRegistry meterRegistry) {
         this.urlMappingService = urlMappingService;
         this.userService = userService;
+        this.bulkShortenService = bulkShortenService;
+        this.clickStreamHub = clickStreamHub;
+        // Tagged by endpoint only; per-user tags would create one time series per user
+        this.shortenedCounter = Counter.builder("urlshortener.urls.shortened")
+                .description("Short URLs created")
+                .tag("mode", "single")
+                .register(meterRegistry);
+        this.bulkShortenedCounter = Counter.builder("urlshortener.urls.shortened")
+                .description("Short URLs created")
+                .tag("mode", "bulk")
+                .register(meterRegistry);
     }
     /**
      * API to create a short URL.
@@ -43,16 +78,38 @@ public class UrlController {
         String originalUrl = request.get("originalUrl");
         logger.info("Received request to shorten URL: {} by user: {}", originalUrl, principal.getName());
 
-        User user = userService.findByUsername(principal.getName());
+        User user = currentUser(principal);
         UrlMappingDTO urlMappingDto = urlMappingService.createShortUrl(originalUrl, user);
 
-        // Track total URLs shortened by user
-//        meterRegistry.counter("urlshortener.urls.shortened", "user", principal.getName()).increment();
+        shortenedCounter.increment();
 
         logger.info("Short URL created: {}", urlMappingDto.getShortUrl());
         return ResponseEntity.ok(urlMappingDto);
     }
 
+    /**
+     * API to create short URLs in bulk.
+     * Accepts a JSON array of URLs (strings or {"originalUrl": ...} objects) and streams back a JSON array with the
+     * short URL or the error for each item, so neither side is held in memory. A body that is not a JSON array gets
+     * 400; malformed JSON later in the body ends the streamed array with an error entry.
+     */
+    @PostMapping(value = "/shorten/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('USER')")
+    public void createShortUrls(Principal principal, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        logger.info("Received bulk shorten request by user: {}", principal.getName());
+
+        User user = currentUser(principal);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try {
+            bulkShortenedCounter.increment(bulkShortenService.shorten(request.getInputStream(), response.getOutputStream(), user));
+        } catch (IllegalArgumentException e) {
+            logger.error("Rejected bulk shorten request: {}", e.getMessage());
+            if (!response.isCommitted()) {
+                response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            }
+        }
+    }
+
     /**
      * API to get all shortened URLs for the authenticated user.
      */
@@ -61,13 +118,42 @@ public class UrlController {
     public ResponseEntity<List<UrlMappingDTO>> getUserUrls(Principal principal) {
         logger.info("Fetching URLs for user: {}", principal.getName());
 
-        User user = userService.findByUsername(principal.getName());
+        User user = currentUser(principal);
         List<UrlMappingDTO> urls = urlMappingService.getUrlsByUser(user);
 
         logger.info("Retrieved {} URLs for user: {}", urls.size(), principal.getName());
         return ResponseEntity.ok(urls);
     }
 
+    /**
+     * API to page through the authenticated user's URLs, newest first.
+     * Pass the returned nextCursor as cursor to get the following page.
+     */
+    @GetMapping("/myUrls/page")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<UrlMappingPageDTO> getUserUrlPage(Principal principal,
+                                                            @RequestParam(value = "cursor", required = false) Long cursor,
+                                                            @RequestParam(value = "size", defaultValue = "100") int size) {
+        logger.info("Fetching URL page for user: {} after cursor {}", principal.getName(), cursor);
+
+        User user = currentUser(principal);
+        return ResponseEntity.ok(urlMappingService.getUrlPageByUser(user, cursor, size));
+    }
+
+    /**
+     * API to export all of the authenticated user's URLs as newline-delimited JSON.
+     * Rows are streamed as they are read, so the export runs in constant memory.
+     */
+    @GetMapping(value = "/myUrls/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<StreamingResponseBody> exportUserUrls(Principal principal) {
+        logger.info("Exporting URLs for user: {}", principal.getName());
+
+        User user = currentUser(principal);
+        StreamingResponseBody body = outputStream -> urlMappingService.exportUrlsByUser(user, outputStream);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     /**
      * API to get click analytics for a short URL within a date range.
      * Validates date format and logs request details.
@@ -95,6 +181,120 @@ public class UrlController {
         }
     }
 
+    /**
+     * API to query the authenticated user's clicks within a date range, grouped by up to three of day, hour, referrer,
+     * country, browser and device, optionally restricted to some of their short URLs. Returns the top groups.
+     */
+    @GetMapping("/analytics/query")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ClickQueryResultDTO> queryClicks(
+            Principal principal,
+            @RequestParam(value = "groupBy", defaultValue = "day") List<String> groupBy,
+            @RequestParam(value = "shortUrls", required = false) List<String> shortUrls,
+            @RequestParam("startDate") String startDate,
+            @RequestParam("endDate") String endDate,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+
+        logger.info("Running click query for user: {} grouped by {} between {} and {}", principal.getName(), groupBy, startDate, endDate);
+
+        try {
+            DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+            LocalDateTime start = LocalDateTime.parse(startDate.trim(), formatter);
+            LocalDateTime end = LocalDateTime.parse(endDate.trim(), formatter);
+            List<ClickGroupBy> fields = groupBy.stream()
+                    .map(field -> ClickGroupBy.valueOf(field.trim().toUpperCase()))
+                    .toList();
+
+            return ResponseEntity.ok(urlMappingService.queryClicks(currentUser(principal), shortUrls, fields, start, end, limit));
+        } catch (Exception e) {
+            logger.error("Error in click query parameters: {} {} - {}", groupBy, startDate, endDate, e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * API to break down the clicks on one of the authenticated user's short URLs within a date range by referrer,
+     * country, browser or device.
+     */
+    @GetMapping("/analytics/{shortUrl}/breakdown")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<Map<String, Long>> getUrlClickBreakdown(
+            Principal principal,
+            @PathVariable String shortUrl,
+            @RequestParam("dimension") String dimension,
+            @RequestParam("startDate") String startDate,
+            @RequestParam("endDate") String endDate) {
+
+        logger.info("Fetching {} breakdown for short URL: {} between {} and {}", dimension, shortUrl, startDate, endDate);
+
+        Map<String, Long> breakdown;
+        try {
+            DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+            LocalDateTime start = LocalDateTime.parse(startDate.trim(), formatter);
+            LocalDateTime end = LocalDateTime.parse(endDate.trim(), formatter);
+            ClickDimension clickDimension = ClickDimension.valueOf(dimension.trim().toUpperCase());
+            breakdown = urlMappingService.getClickBreakdown(shortUrl, currentUser(principal), clickDimension, start, end);
+        } catch (Exception e) {
+            logger.error("Error parsing breakdown parameters: {} {} - {}", dimension, startDate, endDate, e);
+            return ResponseEntity.badRequest().build();
+        }
+        return breakdown == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(breakdown);
+    }
+
+    /**
+     * API to get the approximate unique visitors and top referrers of one of the authenticated user's short URLs
+     * between two days (inclusive).
+     */
+    @GetMapping("/analytics/{shortUrl}/audience")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<AudienceDTO> getUrlAudience(
+            Principal principal,
+            @PathVariable String shortUrl,
+            @RequestParam("startDate") String startDate,
+            @RequestParam("endDate") String endDate,
+            @RequestParam(value = "top", defaultValue = "10") int top) {
+
+        logger.info("Fetching audience for short URL: {} between {} and {}", shortUrl, startDate, endDate);
+
+        AudienceDTO audience;
+        try {
+            DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
+            LocalDate start = LocalDate.parse(startDate.trim(), formatter);
+            LocalDate end = LocalDate.parse(endDate.trim(), formatter);
+            audience = urlMappingService.getAudience(shortUrl, currentUser(principal), start, end, top);
+        } catch (Exception e) {
+            logger.error("Error parsing date parameters for audience: {} - {}", startDate, endDate, e);
+            return ResponseEntity.badRequest().build();
+        }
+        return audience == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(audience);
+    }
+
+    /**
+     * API to delete one of the authenticated user's short URLs together with its click history.
+     */
+    @DeleteMapping("/{shortUrl}")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<Void> deleteShortUrl(@PathVariable String shortUrl, Principal principal) {
+        if (!urlMappingService.deleteShortUrl(shortUrl, currentUser(principal))) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * API to stream live click counts for all of the authenticated user's short URLs as server-sent events.
+     * Each `clicks` event carries the new clicks per short URL since the previous one; idle streams get keepalives.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<SseEmitter> streamClicks(Principal principal) {
+        SseEmitter emitter = clickStreamHub.subscribe(currentUser(principal).getId());
+        if (emitter == null) {
+            logger.warn("Rejected click stream for user: {}, too many open streams", principal.getName());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
 
     /**
      * API to get total clicks on all short URLs for a user within a date range.
@@ -110,7 +310,7 @@ public class UrlController {
 
         try {
             DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
-            User user = userService.findByUsername(principal.getName());
+            User user = currentUser(principal);
             LocalDate start = LocalDate.parse(startDate, formatter);
             LocalDate end = LocalDate.parse(endDate, formatter);
 
@@ -123,4 +323,10 @@ public class UrlController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    // The owner is taken from the authenticated principal, so no request needs a user lookup
+    private User currentUser(Principal principal) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) ((Authentication) principal).getPrincipal();
+        return userService.toUserReference(userDetails);
+    }
 }
@@ -0,0 +1,55 @@
+package com.iaschowrai.urlshortner.dtos;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class AudienceDTO {
+
+    private LocalDate startDate;
+    private LocalDate endDate;
+    // Approximate number of distinct visitors (client address and user agent) over the whole range
+    private long uniqueVisitors;
+    private List<HeavyHitterDTO> topReferrers;
+
+    public AudienceDTO(LocalDate startDate, LocalDate endDate, long uniqueVisitors, List<HeavyHitterDTO> topReferrers) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.uniqueVisitors = uniqueVisitors;
+        this.topReferrers = topReferrers;
+    }
+
+    public AudienceDTO() {
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public long getUniqueVisitors() {
+        return uniqueVisitors;
+    }
+
+    public void setUniqueVisitors(long uniqueVisitors) {
+        this.uniqueVisitors = uniqueVisitors;
+    }
+
+    public List<HeavyHitterDTO> getTopReferrers() {
+        return topReferrers;
+    }
+
+    public void setTopReferrers(List<HeavyHitterDTO> topReferrers) {
+        this.topReferrers = topReferrers;
+    }
+}
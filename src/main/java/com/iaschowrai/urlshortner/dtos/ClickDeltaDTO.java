@@ -0,0 +1,35 @@
+package com.iaschowrai.urlshortner.dtos;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public class ClickDeltaDTO {
+
+    private LocalDateTime at;
+    // New clicks per short URL since the previous event on the stream
+    private Map<String, Long> clicks;
+
+    public ClickDeltaDTO(LocalDateTime at, Map<String, Long> clicks) {
+        this.at = at;
+        this.clicks = clicks;
+    }
+
+    public ClickDeltaDTO() {
+    }
+
+    public LocalDateTime getAt() {
+        return at;
+    }
+
+    public void setAt(LocalDateTime at) {
+        this.at = at;
+    }
+
+    public Map<String, Long> getClicks() {
+        return clicks;
+    }
+
+    public void setClicks(Map<String, Long> clicks) {
+        this.clicks = clicks;
+    }
+}
@@ -0,0 +1,34 @@
+package com.iaschowrai.urlshortner.dtos;
+
+import java.util.List;
+
+public class ClickGroupCountDTO {
+
+    // One value per groupBy field of the query, in the same order
+    private List<String> keys;
+    private long count;
+
+    public ClickGroupCountDTO(List<String> keys, long count) {
+        this.keys = keys;
+        this.count = count;
+    }
+
+    public ClickGroupCountDTO() {
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public void setKeys(List<String> keys) {
+        this.keys = keys;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,45 @@
+package com.iaschowrai.urlshortner.dtos;
+
+import java.util.List;
+
+public class ClickQueryResultDTO {
+
+    private List<String> groupBy;
+    // Largest first, at most the requested limit
+    private List<ClickGroupCountDTO> groups;
+    // Clicks matching the filters, including those in groups cut off by the limit
+    private long totalClicks;
+
+    public ClickQueryResultDTO(List<String> groupBy, List<ClickGroupCountDTO> groups, long totalClicks) {
+        this.groupBy = groupBy;
+        this.groups = groups;
+        this.totalClicks = totalClicks;
+    }
+
+    public ClickQueryResultDTO() {
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    public void setGroupBy(List<String> groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    public List<ClickGroupCountDTO> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(List<ClickGroupCountDTO> groups) {
+        this.groups = groups;
+    }
+
+    public long getTotalClicks() {
+        return totalClicks;
+    }
+
+    public void setTotalClicks(long totalClicks) {
+        this.totalClicks = totalClicks;
+    }
+}
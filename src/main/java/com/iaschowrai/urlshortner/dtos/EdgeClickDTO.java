@@ -0,0 +1,85 @@
+package com.iaschowrai.urlshortner.dtos;
+
+import java.time.LocalDateTime;
+
+// A redirect served by the edge tier, forwarded with the raw request fields needed for enrichment
+public class EdgeClickDTO {
+
+    private String shortUrl;
+    private Long urlMappingId;
+    private Long userId;
+    private LocalDateTime clickDate;
+    private String referrer;
+    private String userAgent;
+    private String remoteAddress;
+
+    public EdgeClickDTO(String shortUrl, Long urlMappingId, Long userId, LocalDateTime clickDate,
+                        String referrer, String userAgent, String remoteAddress) {
+        this.shortUrl = shortUrl;
+        this.urlMappingId = urlMappingId;
+        this.userId = userId;
+        this.clickDate = clickDate;
+        this.referrer = referrer;
+        this.userAgent = userAgent;
+        this.remoteAddress = remoteAddress;
+    }
+
+    public EdgeClickDTO() {
+    }
+
+    public String getShortUrl() {
+        return shortUrl;
+    }
+
+    public void setShortUrl(String shortUrl) {
+        this.shortUrl = shortUrl;
+    }
+
+    public Long getUrlMappingId() {
+        return urlMappingId;
+    }
+
+    public void setUrlMappingId(Long urlMappingId) {
+        this.urlMappingId = urlMappingId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getClickDate() {
+        return clickDate;
+    }
+
+    public void setClickDate(LocalDateTime clickDate) {
+        this.clickDate = clickDate;
+    }
+
+    public String getReferrer() {
+        return referrer;
+    }
+
+    public void setReferrer(String referrer) {
+        this.referrer = referrer;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public void setUserAgent(String userAgent) {
+        this.userAgent = userAgent;
+    }
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    public void setRemoteAddress(String remoteAddress) {
+        this.remoteAddress = remoteAddress;
+    }
+}
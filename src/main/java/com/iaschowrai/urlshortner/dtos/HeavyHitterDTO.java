@@ -0,0 +1,42 @@
+package com.iaschowrai.urlshortner.dtos;
+
+public class HeavyHitterDTO {
+
+    private String value;
+    // Estimated count; the true count is between count - maxError and count
+    private long count;
+    private long maxError;
+
+    public HeavyHitterDTO(String value, long count, long maxError) {
+        this.value = value;
+        this.count = count;
+        this.maxError = maxError;
+    }
+
+    public HeavyHitterDTO() {
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getMaxError() {
+        return maxError;
+    }
+
+    public void setMaxError(long maxError) {
+        this.maxError = maxError;
+    }
+}
@@ -20,6 +20,11 @@ public class UrlMappingDTO {
         this.username = username;
     }
 
+    // Used by the JPQL projections in UrlMappingRepository; the username is filled in by the service
+    public UrlMappingDTO(Long id, String originalUrl, String shortUrl, int clickCount, LocalDateTime createDate) {
+        this(id, originalUrl, shortUrl, clickCount, createDate, null);
+    }
+
     public UrlMappingDTO() {
     }
 
@@ -0,0 +1,34 @@
+package com.iaschowrai.urlshortner.dtos;
+
+import java.util.List;
+
+public class UrlMappingPageDTO {
+
+    private List<UrlMappingDTO> items;
+    // Pass as `cursor` to fetch the next page; null when this is the last page
+    private Long nextCursor;
+
+    public UrlMappingPageDTO(List<UrlMappingDTO> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public UrlMappingPageDTO() {
+    }
+
+    public List<UrlMappingDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<UrlMappingDTO> items) {
+        this.items = items;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
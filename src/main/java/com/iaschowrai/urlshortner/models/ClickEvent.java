@@ -9,7 +9,8 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "click_events")
+@Table(name = "click_events",
+        indexes = @Index(name = "idx_click_events_mapping_date", columnList = "url_mapping_id, click_date"))
 public class ClickEvent {
 
     @Id
@@ -19,8 +20,9 @@ public class ClickEvent {
     @Column(nullable = false, updatable = false)
     private LocalDateTime clickDate = LocalDateTime.now();
 
-    @ManyToOne
-    @JoinColumn(name = "url_mapping_id", nullable = false)
+    // No database foreign key: MySQL cannot partition a table that has one (see ClickEventPartitionManager)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "url_mapping_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private UrlMapping urlMapping;
 
     public ClickEvent() {
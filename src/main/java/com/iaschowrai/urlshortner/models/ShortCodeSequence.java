@@ -0,0 +1,42 @@
+package com.iaschowrai.urlshortner.models;
+
+import jakarta.persistence.*;
+
+/*
+Allocation row for block-leased short code ids. Each node locks the row, reads `nextValue` and advances it by one block,
+then hands the ids of that block out from memory.
+ */
+@Entity
+@Table(name = "short_code_sequences")
+public class ShortCodeSequence {
+
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private long nextValue;
+
+    public ShortCodeSequence() {
+    }
+
+    public ShortCodeSequence(String name, long nextValue) {
+        this.name = name;
+        this.nextValue = nextValue;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getNextValue() {
+        return nextValue;
+    }
+
+    public void setNextValue(long nextValue) {
+        this.nextValue = nextValue;
+    }
+}
@@ -0,0 +1,81 @@
+package com.iaschowrai.urlshortner.models;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/*
+Pre-aggregated number of clicks on one short URL per calendar day. Rows are upserted by the `ClickRollupService` as
+click batches are written, so daily analytics read one row per day instead of one row per click.
+ */
+@Entity
+@Table(name = "click_rollups_daily")
+@IdClass(UrlClickRollupDaily.Key.class)
+public class UrlClickRollupDaily {
+
+    @Id
+    @Column(name = "url_mapping_id")
+    private Long urlMappingId;
+
+    @Id
+    @Column(name = "bucket_date")
+    private LocalDate bucketDate;
+
+    @Column(nullable = false)
+    private long clickCount;
+
+    public UrlClickRollupDaily() {
+    }
+
+    public Long getUrlMappingId() {
+        return urlMappingId;
+    }
+
+    public void setUrlMappingId(Long urlMappingId) {
+        this.urlMappingId = urlMappingId;
+    }
+
+    public LocalDate getBucketDate() {
+        return bucketDate;
+    }
+
+    public void setBucketDate(LocalDate bucketDate) {
+        this.bucketDate = bucketDate;
+    }
+
+    public long getClickCount() {
+        return clickCount;
+    }
+
+    public void setClickCount(long clickCount) {
+        this.clickCount = clickCount;
+    }
+
+    public static class Key implements Serializable {
+
+        private Long urlMappingId;
+        private LocalDate bucketDate;
+
+        public Key() {
+        }
+
+        public Key(Long urlMappingId, LocalDate bucketDate) {
+            this.urlMappingId = urlMappingId;
+            this.bucketDate = bucketDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(urlMappingId, key.urlMappingId) && Objects.equals(bucketDate, key.bucketDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(urlMappingId, bucketDate);
+        }
+    }
+}
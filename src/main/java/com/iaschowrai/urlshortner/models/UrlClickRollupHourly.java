@@ -0,0 +1,81 @@
+package com.iaschowrai.urlshortner.models;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/*
+Pre-aggregated number of clicks on one short URL per hour. Rows are upserted by the `ClickRollupService` as click
+batches are written, so partial days at the edges of an analytics range can be answered without reading click_events.
+ */
+@Entity
+@Table(name = "click_rollups_hourly")
+@IdClass(UrlClickRollupHourly.Key.class)
+public class UrlClickRollupHourly {
+
+    @Id
+    @Column(name = "url_mapping_id")
+    private Long urlMappingId;
+
+    @Id
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    private long clickCount;
+
+    public UrlClickRollupHourly() {
+    }
+
+    public Long getUrlMappingId() {
+        return urlMappingId;
+    }
+
+    public void setUrlMappingId(Long urlMappingId) {
+        this.urlMappingId = urlMappingId;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public long getClickCount() {
+        return clickCount;
+    }
+
+    public void setClickCount(long clickCount) {
+        this.clickCount = clickCount;
+    }
+
+    public static class Key implements Serializable {
+
+        private Long urlMappingId;
+        private LocalDateTime bucketStart;
+
+        public Key() {
+        }
+
+        public Key(Long urlMappingId, LocalDateTime bucketStart) {
+            this.urlMappingId = urlMappingId;
+            this.bucketStart = bucketStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(urlMappingId, key.urlMappingId) && Objects.equals(bucketStart, key.bucketStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(urlMappingId, bucketStart);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.iaschowrai.urlshortner.models;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/*
+Approximate audience of one short URL per calendar day: a serialized HyperLogLog of visitor hashes and a SpaceSaving
+sketch of referrer hosts. Rows are merged by the `ClickSketchService`; each blob has a fixed upper size however many
+clicks the day had.
+ */
+@Entity
+@Table(name = "click_sketches_daily")
+@IdClass(UrlClickSketchDaily.Key.class)
+public class UrlClickSketchDaily {
+
+    @Id
+    @Column(name = "url_mapping_id")
+    private Long urlMappingId;
+
+    @Id
+    @Column(name = "bucket_date")
+    private LocalDate bucketDate;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "BLOB")
+    private byte[] visitors;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "BLOB")
+    private byte[] referrers;
+
+    public UrlClickSketchDaily() {
+    }
+
+    public Long getUrlMappingId() {
+        return urlMappingId;
+    }
+
+    public void setUrlMappingId(Long urlMappingId) {
+        this.urlMappingId = urlMappingId;
+    }
+
+    public LocalDate getBucketDate() {
+        return bucketDate;
+    }
+
+    public void setBucketDate(LocalDate bucketDate) {
+        this.bucketDate = bucketDate;
+    }
+
+    public byte[] getVisitors() {
+        return visitors;
+    }
+
+    public void setVisitors(byte[] visitors) {
+        this.visitors = visitors;
+    }
+
+    public byte[] getReferrers() {
+        return referrers;
+    }
+
+    public void setReferrers(byte[] referrers) {
+        this.referrers = referrers;
+    }
+
+    public static class Key implements Serializable {
+
+        private Long urlMappingId;
+        private LocalDate bucketDate;
+
+        public Key() {
+        }
+
+        public Key(Long urlMappingId, LocalDate bucketDate) {
+            this.urlMappingId = urlMappingId;
+            this.bucketDate = bucketDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(urlMappingId, key.urlMappingId) && Objects.equals(bucketDate, key.bucketDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(urlMappingId, bucketDate);
+        }
+    }
+}
@@ -1,16 +1,24 @@
 package com.iaschowrai.urlshortner.models;
 
+import com.iaschowrai.urlshortner.repository.SecondLevelCacheConfig;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
 @Table(name = "url_mappings")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.URL_MAPPING_REGION)
+@NaturalIdCache(region = SecondLevelCacheConfig.URL_MAPPING_NATURAL_ID_REGION)
 public class UrlMapping {
 
     @Id
@@ -20,19 +28,24 @@ public class UrlMapping {
     @Column(nullable = false)
     private String originalUrl;
 
+    @NaturalId
     @Column(nullable = false, unique = true)
     private String shortUrl;
 
+    // Incremented with plain SQL by the ClickCounter, so a cached entity can lag behind; read counts through the DTO
+    // projections, which always query the table
     private int clickCount = 0;
 
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdDate = LocalDateTime.now();
 
-    @ManyToOne
+    // Lazy: no use case needs the owner's row; the owner id is read from the proxy or projected as u.user.id
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @OneToMany(mappedBy = "urlMapping", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Not cascaded: clicks are removed with bulk deletes by UrlMappingService.deleteShortUrl
+    @OneToMany(mappedBy = "urlMapping")
     private List<ClickEvent> clickEvents;
 
     public UrlMapping() {
@@ -1,23 +1,39 @@
 package com.iaschowrai.urlshortner.models;
 
+import com.iaschowrai.urlshortner.repository.SecondLevelCacheConfig;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.util.List;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.USER_REGION)
+@NaturalIdCache(region = SecondLevelCacheConfig.USER_NATURAL_ID_REGION)
 public class User {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+
+    // Looked up on every authenticated request; resolved through the natural-id cache
+    @NaturalId
     private String username;
     private String email;
     private String password;
 
     private String role = "ROLE_USER";
 
+    // Embedded in issued JWTs; bumping it revokes every token issued before. The cached entity may hold an old value on
+    // other nodes, so checks read it with UserRepository.findTokenVersionById
+    @Column(nullable = false)
+    private int tokenVersion = 0;
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<UrlMapping> urlMappings;
 
@@ -64,6 +80,14 @@ public class User {
         this.role = role;
     }
 
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     public List<UrlMapping> getUrlMappings() {
         return urlMappings;
     }
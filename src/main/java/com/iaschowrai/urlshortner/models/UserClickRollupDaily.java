@@ -0,0 +1,82 @@
+package com.iaschowrai.urlshortner.models;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/*
+Pre-aggregated number of clicks on all short URLs of one user per calendar day. Rows are upserted by the
+`ClickRollupService` as click batches are written, so a user-wide total reads one row per day regardless of how many
+links the user owns.
+ */
+@Entity
+@Table(name = "user_click_rollups_daily")
+@IdClass(UserClickRollupDaily.Key.class)
+public class UserClickRollupDaily {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "bucket_date")
+    private LocalDate bucketDate;
+
+    @Column(nullable = false)
+    private long clickCount;
+
+    public UserClickRollupDaily() {
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDate getBucketDate() {
+        return bucketDate;
+    }
+
+    public void setBucketDate(LocalDate bucketDate) {
+        this.bucketDate = bucketDate;
+    }
+
+    public long getClickCount() {
+        return clickCount;
+    }
+
+    public void setClickCount(long clickCount) {
+        this.clickCount = clickCount;
+    }
+
+    public static class Key implements Serializable {
+
+        private Long userId;
+        private LocalDate bucketDate;
+
+        public Key() {
+        }
+
+        public Key(Long userId, LocalDate bucketDate) {
+            this.userId = userId;
+            this.bucketDate = bucketDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(userId, key.userId) && Objects.equals(bucketDate, key.bucketDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, bucketDate);
+        }
+    }
+}
@@ -1,19 +1,43 @@
 package com.iaschowrai.urlshortner.repository;
 
+import com.iaschowrai.urlshortner.dtos.ClickEventDTO;
 import com.iaschowrai.urlshortner.models.ClickEvent;
-import com.iaschowrai.urlshortner.models.UrlMapping;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ClickEventRepository  extends JpaRepository<ClickEvent, Long> {
 
-    List<ClickEvent> findByUrlMappingAndClickDateBetween(UrlMapping urlMapping, LocalDateTime startDate, LocalDateTime endDate);
+    // Clicks per day for one mapping, aggregated by the database; start and end are inclusive
+    @Query("select new com.iaschowrai.urlshortner.dtos.ClickEventDTO(cast(c.clickDate as LocalDate), count(c)) " +
+            "from ClickEvent c " +
+            "where c.urlMapping.id = :urlMappingId and c.clickDate between :startDate and :endDate " +
+            "group by cast(c.clickDate as LocalDate) " +
+            "order by cast(c.clickDate as LocalDate)")
+    List<ClickEventDTO> countClicksPerDay(@Param("urlMappingId") Long urlMappingId,
+                                          @Param("startDate") LocalDateTime startDate,
+                                          @Param("endDate") LocalDateTime endDate);
 
-    List<ClickEvent> findByUrlMappingInAndClickDateBetween(List<UrlMapping> urlMapping,
-                                                                          LocalDateTime startDate,
-                                                                          LocalDateTime endDate);
+    // Clicks per day across a set of mappings, aggregated by the database; end is exclusive. Takes the mapping ids
+    // rather than joining url_mappings, which may live on other databases (see UrlMappingStore)
+    @Query("select new com.iaschowrai.urlshortner.dtos.ClickEventDTO(cast(c.clickDate as LocalDate), count(c)) " +
+            "from ClickEvent c " +
+            "where c.urlMapping.id in :urlMappingIds and c.clickDate >= :startDate and c.clickDate < :endDate " +
+            "group by cast(c.clickDate as LocalDate) " +
+            "order by cast(c.clickDate as LocalDate)")
+    List<ClickEventDTO> countClicksPerDayByUrlMappingIds(@Param("urlMappingIds") Collection<Long> urlMappingIds,
+                                                         @Param("startDate") LocalDateTime startDate,
+                                                         @Param("endDate") LocalDateTime endDate);
+
+    // Deletes all clicks of a mapping with one statement, without loading them
+    @Modifying
+    @Query("delete from ClickEvent c where c.urlMapping.id = :urlMappingId")
+    int deleteByUrlMappingId(@Param("urlMappingId") Long urlMappingId);
 }
@@ -0,0 +1,84 @@
+package com.iaschowrai.urlshortner.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Replaces the auto-configured data source when `url.datasource.routing.enabled=true`. The primary pool is built from
+`spring.datasource.*` and `spring.datasource.hikari.*` as before; one replica pool is built per URL in
+`url.datasource.replicas.urls`, with the primary's credentials and driver unless `url.datasource.replicas.username` and
+`password` are set, and with its own pool settings from `url.datasource.replicas.hikari.*`. Replica connections are
+read-only, so a write routed to a replica by mistake fails instead of diverging.
+
+Pool metrics are published per pool as `hikaricp.connections.*{pool=primary|replica-N}`.
+ */
+@Configuration
+@ConditionalOnProperty(name = "url.datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceRoutingConfig.class);
+
+    // Not injectable on its own: everything must go through the lazy proxy below
+    @Bean(destroyMethod = "close", autowireCandidate = false)
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(DataSourceProperties properties, Environment environment,
+                                                                 MeterRegistry meterRegistry) {
+        Binder binder = Binder.get(environment);
+        MicrometerMetricsTrackerFactory metricsTrackerFactory = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+        primary.setMetricsTrackerFactory(metricsTrackerFactory);
+
+        List<String> urls = binder.bind("url.datasource.replicas.urls", Bindable.listOf(String.class)).orElse(List.of());
+        String username = binder.bind("url.datasource.replicas.username", String.class).orElse(properties.determineUsername());
+        String password = binder.bind("url.datasource.replicas.password", String.class).orElse(properties.determinePassword());
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = DataSourceBuilder.create(properties.getClassLoader())
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(username)
+                    .password(password)
+                    .build();
+            binder.bind("url.datasource.replicas.hikari", Bindable.ofInstance(replica));
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(metricsTrackerFactory);
+            replicas.add(replica);
+        }
+
+        logger.info("Routing read-only transactions to {} replica(s), everything else to the primary.", replicas.size());
+        return new ReadWriteRoutingDataSource(primary, replicas, meterRegistry);
+    }
+
+    // The proxy hands out a connection handle first and picks the pool on the first statement, after the transaction
+    // has set its read-only flag
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource(properties, environment, meterRegistry));
+    }
+}
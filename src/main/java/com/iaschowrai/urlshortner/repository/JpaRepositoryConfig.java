@@ -0,0 +1,9 @@
+package com.iaschowrai.urlshortner.repository;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+@Configuration
+@EnableJpaRepositories(repositoryBaseClass = NaturalIdRepositoryImpl.class)
+public class JpaRepositoryConfig {
+}
@@ -0,0 +1,138 @@
+package com.iaschowrai.urlshortner.repository;
+
+import com.iaschowrai.urlshortner.dtos.UrlMappingDTO;
+import com.iaschowrai.urlshortner.models.UrlMapping;
+import com.iaschowrai.urlshortner.models.User;
+import com.iaschowrai.urlshortner.service.urlservice.RedirectTarget;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+The `JpaUrlMappingStore` keeps `url_mappings` in the application database. Reads and single writes go through
+`UrlMappingRepository`, so redirects are served by the natural-id cache; bulk inserts are JDBC batches. Deletes are plain
+SQL too: a JPQL bulk delete would clear the whole url-mappings region, so only the deleted entity is evicted instead.
+ */
+@Component
+@ConditionalOnProperty(name = "url.shards.enabled", havingValue = "false", matchIfMissing = true)
+public class JpaUrlMappingStore implements UrlMappingStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JpaUrlMappingStore.class);
+
+    private static final String DELETE_URL_MAPPING = "DELETE FROM url_mappings WHERE id = ?";
+    private static final String INSERT_URL_MAPPING =
+            "INSERT INTO url_mappings (original_url, short_url, click_count, created_date, user_id) VALUES (?, ?, 0, ?, ?)";
+
+    private final UrlMappingRepository urlMappingRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache secondLevelCache;
+
+    public JpaUrlMappingStore(UrlMappingRepository urlMappingRepository, JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory) {
+        this.urlMappingRepository = urlMappingRepository;
+        this.secondLevelCache = entityManagerFactory.getCache();
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Natural-id load: served from the second-level cache without SQL when the mapping is there
+    @Override
+    public RedirectTarget findRedirectTarget(String shortUrl) {
+        return urlMappingRepository.findBySimpleNaturalId(shortUrl).map(RedirectTarget::from).orElse(null);
+    }
+
+    @Override
+    public RedirectTarget findRedirectTargetUncached(String shortUrl) {
+        return urlMappingRepository.findRedirectTargetByShortUrl(shortUrl);
+    }
+
+    @Override
+    public UrlMappingDTO create(String originalUrl, String shortUrl, User user) {
+        UrlMapping urlMapping = new UrlMapping();
+        urlMapping.setOriginalUrl(originalUrl);
+        urlMapping.setShortUrl(shortUrl);
+        urlMapping.setUser(user);
+        urlMapping.setCreatedDate(LocalDateTime.now());
+
+        UrlMapping saved = urlMappingRepository.save(urlMapping);
+        return new UrlMappingDTO(saved.getId(), saved.getOriginalUrl(), saved.getShortUrl(), saved.getClickCount(),
+                saved.getCreatedDate());
+    }
+
+    @Override
+    public boolean[] createAll(List<NewUrlMapping> mappings) {
+        boolean[] created = new boolean[mappings.size()];
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_URL_MAPPING, mappings, mappings.size(), (ps, mapping) -> {
+                        ps.setString(1, mapping.originalUrl());
+                        ps.setString(2, mapping.shortUrl());
+                        ps.setTimestamp(3, Timestamp.valueOf(mapping.createdDate()));
+                        ps.setLong(4, mapping.userId());
+                    }));
+            Arrays.fill(created, true);
+            return created;
+        } catch (RuntimeException batchFailure) {
+            // Fall back to one insert per row so each failure is reported against the row that caused it
+            logger.warn("Bulk insert of {} URLs failed, retrying row by row: {}", mappings.size(), batchFailure.getMessage());
+        }
+        for (int i = 0; i < mappings.size(); i++) {
+            NewUrlMapping mapping = mappings.get(i);
+            try {
+                jdbcTemplate.update(INSERT_URL_MAPPING, mapping.originalUrl(), mapping.shortUrl(),
+                        Timestamp.valueOf(mapping.createdDate()), mapping.userId());
+                created[i] = true;
+            } catch (RuntimeException e) {
+                logger.debug("Insert of short URL {} failed: {}", mapping.shortUrl(), e.getMessage());
+            }
+        }
+        return created;
+    }
+
+    @Override
+    public List<UrlMappingDTO> findDtosByUserId(Long userId) {
+        return urlMappingRepository.findDtosByUserId(userId);
+    }
+
+    @Override
+    public List<Long> findIdsByUserId(Long userId) {
+        return urlMappingRepository.findIdsByUserId(userId);
+    }
+
+    @Override
+    public List<UrlMappingDTO> findDtoPageByUserId(Long userId, long beforeId, int limit) {
+        return urlMappingRepository.findDtoPageByUserId(userId, beforeId, Limit.of(limit));
+    }
+
+    @Override
+    public int deleteMapping(Long id, String shortUrl) {
+        int deleted = jdbcTemplate.update(DELETE_URL_MAPPING, id);
+        // After commit, so a concurrent load cannot put the row back before the delete is visible
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    secondLevelCache.evict(UrlMapping.class, id);
+                }
+            });
+        } else {
+            secondLevelCache.evict(UrlMapping.class, id);
+        }
+        return deleted;
+    }
+}
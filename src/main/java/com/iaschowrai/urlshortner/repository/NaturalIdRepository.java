@@ -0,0 +1,16 @@
+package com.iaschowrai.urlshortner.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.util.Optional;
+
+/*
+Repositories of entities with a simple `@NaturalId`. Unlike a derived `findByXxx` query, a natural-id load goes through
+the Hibernate natural-id cache and second-level cache, so a cached entity is returned without any SQL.
+ */
+@NoRepositoryBean
+public interface NaturalIdRepository<T, ID> extends JpaRepository<T, ID> {
+
+    Optional<T> findBySimpleNaturalId(Object naturalId);
+}
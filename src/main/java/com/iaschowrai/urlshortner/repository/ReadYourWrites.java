@@ -0,0 +1,108 @@
+package com.iaschowrai.urlshortner.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/*
+The `ReadYourWrites` window keeps reads consistent with writes made just before them when read-only transactions are
+routed to replicas (see `ReadWriteRoutingDataSource`). Writers mark the keys they changed, a user or a short code, and
+for `url.datasource.read-your-writes.window-ms` after the commit reads of those keys are pinned to the primary. Pinning
+is a thread-local scope that the routing data source checks when a connection is first used, so it must be entered
+before the transaction runs its first statement.
+
+Marks are kept per node. A redirect that lands on another node right after the code was created still finds it, because
+a replica miss on the redirect path is checked once more on the primary (see `UrlMappingService`). This relies on the
+short code filter being off, its default: with `url.bloom.enabled=true` such a code is rejected by that node's filter
+before the database is asked.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final ThreadLocal<int[]> PRIMARY_DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final boolean enabled;
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReadYourWrites(@Value("${url.datasource.routing.enabled:false}") boolean routingEnabled,
+                          @Value("${url.datasource.read-your-writes.window-ms:5000}") long windowMs,
+                          @Value("${url.datasource.read-your-writes.maximum-size:100000}") long maximumSize) {
+        this.enabled = routingEnabled && windowMs > 0;
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maximumSize))
+                .expireAfterWrite(Duration.ofMillis(Math.max(1, windowMs)))
+                .build();
+    }
+
+    // True while the current thread is inside a primary scope; read by the routing data source
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_DEPTH.get()[0] > 0;
+    }
+
+    public static String userKey(Long userId) {
+        return "user:" + userId;
+    }
+
+    public static String shortUrlKey(String shortUrl) {
+        return "code:" + shortUrl;
+    }
+
+    // False without replicas, where every read already goes to the primary
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Starts the window when the surrounding transaction commits, or right away outside of one
+    public void markWritten(String key) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentWrites.put(key, Boolean.TRUE);
+                }
+            });
+        } else {
+            recentWrites.put(key, Boolean.TRUE);
+        }
+    }
+
+    public boolean isRecentlyWritten(String key) {
+        return enabled && recentWrites.getIfPresent(key) != null;
+    }
+
+    // Runs the read on the primary if the key was written within the window, otherwise wherever it is routed
+    public <T> T read(String key, Supplier<T> read) {
+        return isRecentlyWritten(key) ? readFromPrimary(read) : read.get();
+    }
+
+    public <T> T readFromPrimary(Supplier<T> read) {
+        try (PrimaryScope ignored = pinToPrimary()) {
+            return read.get();
+        }
+    }
+
+    // Scopes nest; reads stay on the primary until the outermost scope is closed
+    public PrimaryScope pinToPrimary() {
+        int[] depth = PRIMARY_DEPTH.get();
+        depth[0]++;
+        return () -> {
+            if (--depth[0] == 0) {
+                PRIMARY_DEPTH.remove();
+            }
+        };
+    }
+
+    public interface PrimaryScope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
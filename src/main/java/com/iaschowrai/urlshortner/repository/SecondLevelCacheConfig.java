@@ -0,0 +1,100 @@
+package com.iaschowrai.urlshortner.repository;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/*
+Hibernate second-level cache for `User` and `UrlMapping`, their natural ids (`username`, `shortUrl`) and queries marked
+cacheable, on JCache with the in-process Caffeine provider. Each region is created here with its own size bound and time-to-live from `url.cache.l2.*`, so nothing in the
+cache is unbounded. With `url.cache.l2.enabled=false` Hibernate runs without a second-level cache.
+
+The regions are local to each JVM and nothing invalidates them across nodes: a mapping deleted on one node is evicted
+there (see `JpaUrlMappingStore`), while other nodes keep serving it until it expires. The TTL therefore defaults to that
+of the `UrlMappingCache` in front of it, which is stale across nodes for as long. A cached `User` can likewise carry an
+old token version, so the version is always read with an uncached query (see `UserDetailsServiceImpl`) and token
+revocation is seen by every node on the next request. Writes done with plain SQL (click counts, bulk
+inserts) bypass the cache; see `UrlMapping`. Hit and miss counts per region are published by hibernate-micrometer as
+`hibernate.second.level.cache.requests`.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String USER_REGION = "users";
+    public static final String USER_NATURAL_ID_REGION = "users-by-username";
+    public static final String URL_MAPPING_REGION = "url-mappings";
+    public static final String URL_MAPPING_NATURAL_ID_REGION = "url-mappings-by-short-url";
+
+    @Value("${url.cache.l2.enabled:true}")
+    private boolean enabled;
+
+    @Value("${url.cache.l2.users.maximum-size:10000}")
+    private long usersMaximumSize;
+
+    @Value("${url.cache.l2.users.ttl-seconds:300}")
+    private long usersTtlSeconds;
+
+    @Value("${url.cache.l2.url-mappings.maximum-size:100000}")
+    private long urlMappingsMaximumSize;
+
+    @Value("${url.cache.l2.url-mappings.ttl-seconds:${url.cache.ttl-seconds:600}}")
+    private long urlMappingsTtlSeconds;
+
+    @Value("${url.cache.l2.queries.maximum-size:10000}")
+    private long queriesMaximumSize;
+
+    @Value("${url.cache.l2.queries.ttl-seconds:300}")
+    private long queriesTtlSeconds;
+
+    // One cache manager per application, closed with the context so a restarted context starts with empty regions
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(@Value("${spring.application.name}") String applicationName) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create(applicationName + "-second-level-cache"), getClass().getClassLoader());
+        createRegion(cacheManager, USER_REGION, usersMaximumSize, usersTtlSeconds);
+        createRegion(cacheManager, USER_NATURAL_ID_REGION, usersMaximumSize, usersTtlSeconds);
+        createRegion(cacheManager, URL_MAPPING_REGION, urlMappingsMaximumSize, urlMappingsTtlSeconds);
+        createRegion(cacheManager, URL_MAPPING_NATURAL_ID_REGION, urlMappingsMaximumSize, urlMappingsTtlSeconds);
+        createRegion(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, queriesMaximumSize, queriesTtlSeconds);
+        // One entry per table; must not expire before the query results that depend on it
+        createRegion(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, 1000, 0);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, enabled);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, enabled);
+            if (enabled) {
+                properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+                properties.put("hibernate.javax.cache.cache_manager", secondLevelCacheManager);
+                properties.put("hibernate.javax.cache.missing_cache_strategy", "create-warn");
+            }
+        };
+    }
+
+    private static void createRegion(CacheManager cacheManager, String name, long maximumSize, long ttlSeconds) {
+        if (cacheManager.getCache(name) != null) {
+            return;
+        }
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        if (ttlSeconds > 0) {
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        }
+        configuration.setStatisticsEnabled(true);
+        cacheManager.createCache(name, configuration);
+    }
+}
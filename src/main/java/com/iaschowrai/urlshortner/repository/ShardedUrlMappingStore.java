@@ -0,0 +1,316 @@
+package com.iaschowrai.urlshortner.repository;
+
+import com.iaschowrai.urlshortner.dtos.UrlMappingDTO;
+import com.iaschowrai.urlshortner.models.ShortCodeSequence;
+import com.iaschowrai.urlshortner.models.User;
+import com.iaschowrai.urlshortner.service.urlservice.RedirectTarget;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/*
+The `ShardedUrlMappingStore` keeps `url_mappings` on the `UrlMappingShards`. Lookups, inserts and deletes by short code
+go to the code's owner shard only. A user's links are spread over every shard, so listing them is a scatter-gather:
+each shard is queried in parallel for its own newest rows below the cursor and the results are merged by id. Ids are
+unique across shards, so the id keyset stays valid for the merged list.
+
+Ids are leased in blocks of `url.shards.id-block-size` from the `short_code_sequences` row `url_mapping_id` in the
+application database, the same scheme as `SequenceShortCodeGenerator`. The first lease starts above the largest id on
+any database, so rows from before sharding keep their ids and their clicks and rollups stay attached.
+
+Mappings on shards are not in the second-level cache; the redirect path still has the `UrlMappingCache` in front.
+ */
+@Component
+@ConditionalOnProperty(name = "url.shards.enabled", havingValue = "true")
+public class ShardedUrlMappingStore implements UrlMappingStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedUrlMappingStore.class);
+
+    private static final String ID_SEQUENCE = "url_mapping_id";
+
+    private static final String SELECT_TARGET =
+            "SELECT id, user_id, short_url, original_url FROM url_mappings WHERE short_url = ?";
+    private static final String INSERT_URL_MAPPING =
+            "INSERT INTO url_mappings (id, original_url, short_url, click_count, created_date, user_id) VALUES (?, ?, ?, 0, ?, ?)";
+    private static final String SELECT_BY_USER =
+            "SELECT id, original_url, short_url, click_count, created_date FROM url_mappings WHERE user_id = ? ORDER BY id DESC";
+    private static final String SELECT_IDS_BY_USER = "SELECT id FROM url_mappings WHERE user_id = ?";
+    private static final String SELECT_PAGE_BY_USER =
+            "SELECT id, original_url, short_url, click_count, created_date FROM url_mappings " +
+            "WHERE user_id = ? AND id < ? ORDER BY id DESC LIMIT ?";
+    private static final String DELETE_BY_ID = "DELETE FROM url_mappings WHERE id = ?";
+    private static final String SELECT_MAX_ID = "SELECT MAX(id) FROM url_mappings";
+
+    private static final RowMapper<RedirectTarget> TARGET_MAPPER = (rs, rowNum) -> new RedirectTarget(
+            rs.getLong("id"), rs.getLong("user_id"), rs.getString("short_url"), rs.getString("original_url"));
+    private static final RowMapper<UrlMappingDTO> DTO_MAPPER = (rs, rowNum) -> new UrlMappingDTO(
+            rs.getLong("id"), rs.getString("original_url"), rs.getString("short_url"), rs.getInt("click_count"),
+            rs.getTimestamp("created_date").toLocalDateTime());
+    private static final Comparator<UrlMappingDTO> NEWEST_FIRST = Comparator.comparing(UrlMappingDTO::getId).reversed();
+
+    private final UrlMappingShards shards;
+    private final ShortCodeSequenceRepository sequenceRepository;
+    private final TransactionTemplate leaseTransaction;
+    private final int idBlockSize;
+    private final ExecutorService fanOut;
+    private final ReentrantLock leaseLock = new ReentrantLock();
+
+    private volatile IdBlock currentIds;
+
+    public ShardedUrlMappingStore(UrlMappingShards shards,
+                                  ShortCodeSequenceRepository sequenceRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${url.shards.id-block-size:1000}") int idBlockSize,
+                                  @Value("${url.shards.fan-out-threads:16}") int fanOutThreads) {
+        this.shards = shards;
+        this.sequenceRepository = sequenceRepository;
+        this.leaseTransaction = new TransactionTemplate(transactionManager);
+        this.leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.idBlockSize = idBlockSize;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.fanOut = Executors.newFixedThreadPool(Math.max(1, fanOutThreads), runnable -> {
+            Thread thread = new Thread(runnable, "shard-fan-out-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public RedirectTarget findRedirectTarget(String shortUrl) {
+        UrlMappingShards.Shard owner = shards.shardFor(shortUrl);
+        RedirectTarget target = findOn(owner, shortUrl);
+        // Only while rebalancing: the row may not have been moved to its owner yet
+        for (UrlMappingShards.Shard shard : shards.fallbacksFor(owner)) {
+            if (target != null) {
+                break;
+            }
+            target = findOn(shard, shortUrl);
+        }
+        return target;
+    }
+
+    @Override
+    public RedirectTarget findRedirectTargetUncached(String shortUrl) {
+        return findRedirectTarget(shortUrl);
+    }
+
+    @Override
+    public UrlMappingDTO create(String originalUrl, String shortUrl, User user) {
+        long id = nextId();
+        LocalDateTime createdDate = LocalDateTime.now();
+        shards.shardFor(shortUrl).jdbcTemplate()
+                .update(INSERT_URL_MAPPING, id, originalUrl, shortUrl, Timestamp.valueOf(createdDate), user.getId());
+        return new UrlMappingDTO(id, originalUrl, shortUrl, 0, createdDate);
+    }
+
+    // One batch per owner shard, each in its own transaction; a failed batch only falls back to row-by-row inserts for
+    // the rows of that shard
+    @Override
+    public boolean[] createAll(List<NewUrlMapping> mappings) {
+        Map<UrlMappingShards.Shard, List<Integer>> rowsByShard = new LinkedHashMap<>();
+        for (int i = 0; i < mappings.size(); i++) {
+            rowsByShard.computeIfAbsent(shards.shardFor(mappings.get(i).shortUrl()), shard -> new ArrayList<>()).add(i);
+        }
+
+        long[] ids = new long[mappings.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nextId();
+        }
+
+        boolean[] created = new boolean[mappings.size()];
+        rowsByShard.forEach((shard, rows) -> insertOn(shard, rows, mappings, ids, created));
+        return created;
+    }
+
+    @Override
+    public List<UrlMappingDTO> findDtosByUserId(Long userId) {
+        return newestFirst(gather(shard -> shard.jdbcTemplate().query(SELECT_BY_USER, DTO_MAPPER, userId)));
+    }
+
+    // A row being moved by the rebalancer can briefly be seen on both databases
+    @Override
+    public List<Long> findIdsByUserId(Long userId) {
+        return gather(shard -> shard.jdbcTemplate().queryForList(SELECT_IDS_BY_USER, Long.class, userId))
+                .stream()
+                .distinct()
+                .toList();
+    }
+
+    // Every shard returns at most `limit` rows below the cursor; the newest `limit` of their union are the page
+    @Override
+    public List<UrlMappingDTO> findDtoPageByUserId(Long userId, long beforeId, int limit) {
+        List<UrlMappingDTO> merged = newestFirst(gather(shard ->
+                shard.jdbcTemplate().query(SELECT_PAGE_BY_USER, DTO_MAPPER, userId, beforeId, limit)));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    @Override
+    public int deleteMapping(Long id, String shortUrl) {
+        UrlMappingShards.Shard owner = shards.shardFor(shortUrl);
+        int deleted = owner.jdbcTemplate().update(DELETE_BY_ID, id);
+        for (UrlMappingShards.Shard shard : shards.fallbacksFor(owner)) {
+            deleted += shard.jdbcTemplate().update(DELETE_BY_ID, id);
+        }
+        return deleted;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOut.shutdownNow();
+    }
+
+    private RedirectTarget findOn(UrlMappingShards.Shard shard, String shortUrl) {
+        List<RedirectTarget> targets = shard.jdbcTemplate().query(SELECT_TARGET, TARGET_MAPPER, shortUrl);
+        return targets.isEmpty() ? null : targets.get(0);
+    }
+
+    private void insertOn(UrlMappingShards.Shard shard, List<Integer> rows, List<NewUrlMapping> mappings, long[] ids,
+                          boolean[] created) {
+        try {
+            shard.transactionTemplate().executeWithoutResult(status ->
+                    shard.jdbcTemplate().batchUpdate(INSERT_URL_MAPPING, rows, rows.size(), (ps, row) -> {
+                        NewUrlMapping mapping = mappings.get(row);
+                        ps.setLong(1, ids[row]);
+                        ps.setString(2, mapping.originalUrl());
+                        ps.setString(3, mapping.shortUrl());
+                        ps.setTimestamp(4, Timestamp.valueOf(mapping.createdDate()));
+                        ps.setLong(5, mapping.userId());
+                    }));
+            rows.forEach(row -> created[row] = true);
+            return;
+        } catch (RuntimeException batchFailure) {
+            logger.warn("Bulk insert of {} URLs on {} failed, retrying row by row: {}", rows.size(), shard,
+                    batchFailure.getMessage());
+        }
+        for (int row : rows) {
+            NewUrlMapping mapping = mappings.get(row);
+            try {
+                shard.jdbcTemplate().update(INSERT_URL_MAPPING, ids[row], mapping.originalUrl(), mapping.shortUrl(),
+                        Timestamp.valueOf(mapping.createdDate()), mapping.userId());
+                created[row] = true;
+            } catch (RuntimeException e) {
+                logger.debug("Insert of short URL {} on {} failed: {}", mapping.shortUrl(), shard, e.getMessage());
+            }
+        }
+    }
+
+    // Runs the query on every database that may hold mappings, in parallel, and concatenates the results
+    // A row being moved by the rebalancer can be on two databases; the copy with more clicks is the current one
+    private static List<UrlMappingDTO> newestFirst(List<UrlMappingDTO> rows) {
+        Map<Long, UrlMappingDTO> byId = new LinkedHashMap<>();
+        for (UrlMappingDTO row : rows) {
+            byId.merge(row.getId(), row, (a, b) -> a.getClickCount() >= b.getClickCount() ? a : b);
+        }
+        List<UrlMappingDTO> merged = new ArrayList<>(byId.values());
+        merged.sort(NEWEST_FIRST);
+        return merged;
+    }
+
+    private <T> List<T> gather(Function<UrlMappingShards.Shard, List<T>> query) {
+        List<CompletableFuture<List<T>>> futures = shards.databases().stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), fanOut))
+                .toList();
+        List<T> results = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<T>> future : futures) {
+                results.addAll(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private long nextId() {
+        while (true) {
+            IdBlock block = currentIds;
+            if (block != null) {
+                long id = block.next.getAndIncrement();
+                if (id < block.end) {
+                    return id;
+                }
+            }
+            leaseLock.lock();
+            try {
+                // Another thread may already have replaced the block we saw
+                if (currentIds == block) {
+                    currentIds = leaseIds();
+                }
+            } finally {
+                leaseLock.unlock();
+            }
+        }
+    }
+
+    private IdBlock leaseIds() {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                IdBlock block = leaseTransaction.execute(status -> {
+                    ShortCodeSequence sequence = sequenceRepository.findByName(ID_SEQUENCE)
+                            .orElseGet(() -> sequenceRepository.saveAndFlush(new ShortCodeSequence(ID_SEQUENCE, maxExistingId() + 1)));
+                    long start = sequence.getNextValue();
+                    sequence.setNextValue(start + idBlockSize);
+                    return new IdBlock(start, start + idBlockSize);
+                });
+                logger.info("Leased url mapping ids [{}, {}).", block.next.get(), block.end);
+                return block;
+            } catch (DataIntegrityViolationException e) {
+                // Another node created the sequence row first; read it again
+                if (attempt > 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Over every shard and the application database, whether or not a rebalance is running
+    private long maxExistingId() {
+        List<UrlMappingShards.Shard> all = new ArrayList<>(shards.shards());
+        all.add(shards.primary());
+        long max = 0;
+        for (UrlMappingShards.Shard shard : all) {
+            Long id = shard.jdbcTemplate().queryForObject(SELECT_MAX_ID, Long.class);
+            max = Math.max(max, id == null ? 0 : id);
+        }
+        return max;
+    }
+
+    private static final class IdBlock {
+        private final AtomicLong next;
+        private final long end;
+
+        private IdBlock(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
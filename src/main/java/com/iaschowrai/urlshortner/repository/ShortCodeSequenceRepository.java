@@ -0,0 +1,17 @@
+package com.iaschowrai.urlshortner.repository;
+
+import com.iaschowrai.urlshortner.models.ShortCodeSequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ShortCodeSequenceRepository extends JpaRepository<ShortCodeSequence, String> {
+
+    // SELECT ... FOR UPDATE, so concurrent nodes lease disjoint blocks
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<ShortCodeSequence> findByName(String name);
+}
@@ -0,0 +1,21 @@
+package com.iaschowrai.urlshortner.repository;
+
+import com.iaschowrai.urlshortner.models.UrlClickRollupHourly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UrlClickRollupHourlyRepository extends JpaRepository<UrlClickRollupHourly, UrlClickRollupHourly.Key> {
+
+    List<UrlClickRollupHourly> findByUrlMappingIdAndBucketStartBetween(Long urlMappingId, LocalDateTime start, LocalDateTime end);
+
+    @Modifying
+    @Query("delete from UrlClickRollupHourly r where r.urlMappingId = :urlMappingId")
+    int deleteByUrlMappingId(@Param("urlMappingId") Long urlMappingId);
+}
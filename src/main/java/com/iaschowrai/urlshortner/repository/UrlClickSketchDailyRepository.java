@@ -0,0 +1,21 @@
+package com.iaschowrai.urlshortner.repository;
+
+import com.iaschowrai.urlshortner.models.UrlClickSketchDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface UrlClickSketchDailyRepository extends JpaRepository<UrlClickSketchDaily, UrlClickSketchDaily.Key> {
+
+    List<UrlClickSketchDaily> findByUrlMappingIdAndBucketDateBetween(Long urlMappingId, LocalDate startDate, LocalDate endDate);
+
+    @Modifying
+    @Query("delete from UrlClickSketchDaily s where s.urlMappingId = :urlMappingId")
+    int deleteByUrlMappingId(@Param("urlMappingId") Long urlMappingId);
+}
@@ -0,0 +1,156 @@
+package com.iaschowrai.urlshortner.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+The `UrlMappingRebalancer` moves every mapping that is not on its owner shard to it, while the application keeps
+serving: after shards were appended to `url.shards.urls`, and once when sharding is first enabled to empty the
+application database's `url_mappings`. Every node must run with `url.shards.rebalancing=true` until it has finished, so
+that lookups that miss on the owner also check where the row used to be.
+
+Each database is scanned in id order, `url.shards.rebalance.batch-size` rows at a time with a pause in between. A row is
+moved inside a transaction on its source that locks it with SELECT ... FOR UPDATE, copies it to the owner and deletes
+it. Click count flushes block on that lock and then find the row on the owner (see `ClickCounter`), so no increment is
+lost or applied twice. An interrupted run is simply started again; a copy it left on the owner is kept, with the larger
+of the two click counts.
+ */
+@Component
+@ConditionalOnProperty(name = "url.shards.enabled", havingValue = "true")
+public class UrlMappingRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(UrlMappingRebalancer.class);
+
+    private static final String SELECT_BATCH = "SELECT id, short_url FROM url_mappings WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_FOR_UPDATE =
+            "SELECT id, original_url, short_url, click_count, created_date, user_id FROM url_mappings WHERE id = ? FOR UPDATE";
+    private static final String INSERT_MOVED =
+            "INSERT INTO url_mappings (id, original_url, short_url, click_count, created_date, user_id) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String RECONCILE_CLICK_COUNT =
+            "UPDATE url_mappings SET click_count = GREATEST(click_count, ?) WHERE id = ?";
+    private static final String DELETE_BY_ID = "DELETE FROM url_mappings WHERE id = ?";
+
+    private final UrlMappingShards shards;
+    private final boolean rebalanceOnStartup;
+    private final int batchSize;
+    private final long pauseMs;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter movedCounter;
+
+    public UrlMappingRebalancer(UrlMappingShards shards,
+                                MeterRegistry meterRegistry,
+                                @Value("${url.shards.rebalance-on-startup:false}") boolean rebalanceOnStartup,
+                                @Value("${url.shards.rebalance.batch-size:500}") int batchSize,
+                                @Value("${url.shards.rebalance.pause-ms:50}") long pauseMs) {
+        this.shards = shards;
+        this.rebalanceOnStartup = rebalanceOnStartup;
+        this.batchSize = Math.max(1, batchSize);
+        this.pauseMs = pauseMs;
+        this.movedCounter = Counter.builder("url.shards.rebalance.moved")
+                .description("Mappings moved to their owner shard")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebalanceIfConfigured() {
+        if (!rebalanceOnStartup) {
+            return;
+        }
+        if (!shards.isRebalancing()) {
+            logger.warn("Not rebalancing url_mappings: url.shards.rebalancing must be set while a rebalance runs.");
+            return;
+        }
+        Thread thread = new Thread(this::rebalance, "url-mapping-rebalancer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Returns the number of mappings moved; 0 if a rebalance is already running on this node
+    public long rebalance() {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("A url_mappings rebalance is already running.");
+            return 0;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            List<UrlMappingShards.Shard> sources = new ArrayList<>(shards.shards());
+            sources.add(shards.primary());
+
+            long moved = 0;
+            for (UrlMappingShards.Shard source : sources) {
+                moved += drain(source);
+            }
+            logger.info("Rebalanced url_mappings: moved {} mappings in {} ms.", moved, System.currentTimeMillis() - started);
+            return moved;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("url_mappings rebalance interrupted; run it again to finish.");
+            return 0;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long drain(UrlMappingShards.Shard source) throws InterruptedException {
+        long moved = 0;
+        long cursor = 0;
+        while (true) {
+            List<Row> batch = source.jdbcTemplate().query(SELECT_BATCH,
+                    (rs, rowNum) -> new Row(rs.getLong("id"), rs.getString("short_url")), cursor, batchSize);
+            for (Row row : batch) {
+                UrlMappingShards.Shard owner = shards.shardFor(row.shortUrl());
+                if (owner != source && move(row.id(), source, owner)) {
+                    moved++;
+                    movedCounter.increment();
+                }
+            }
+            if (batch.size() < batchSize) {
+                break;
+            }
+            cursor = batch.get(batch.size() - 1).id();
+            Thread.sleep(pauseMs);
+        }
+        if (moved > 0) {
+            logger.info("Moved {} mappings off {}.", moved, source);
+        }
+        return moved;
+    }
+
+    private boolean move(long id, UrlMappingShards.Shard source, UrlMappingShards.Shard target) {
+        return Boolean.TRUE.equals(source.transactionTemplate().execute(status -> {
+            List<Map<String, Object>> rows = source.jdbcTemplate().queryForList(SELECT_FOR_UPDATE, id);
+            if (rows.isEmpty()) {
+                // Deleted since the batch was read
+                return false;
+            }
+            Map<String, Object> row = rows.get(0);
+            try {
+                target.jdbcTemplate().update(INSERT_MOVED, row.get("id"), row.get("original_url"), row.get("short_url"),
+                        row.get("click_count"), row.get("created_date"), row.get("user_id"));
+            } catch (DuplicateKeyException e) {
+                // A copy left by an interrupted move. Click deltas land on the first database that has the row, so only
+                // one of the two copies has counted since; keep the larger count
+                target.jdbcTemplate().update(RECONCILE_CLICK_COUNT, row.get("click_count"), id);
+                logger.debug("Mapping {} was already on {}; reconciled its click count.", id, target);
+            }
+            source.jdbcTemplate().update(DELETE_BY_ID, id);
+            return true;
+        }));
+    }
+
+    private record Row(long id, String shortUrl) {
+    }
+}
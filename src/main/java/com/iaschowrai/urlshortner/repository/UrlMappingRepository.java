@@ -1,16 +1,35 @@
 package com.iaschowrai.urlshortner.repository;
 
+import com.iaschowrai.urlshortner.dtos.UrlMappingDTO;
 import com.iaschowrai.urlshortner.models.UrlMapping;
-import com.iaschowrai.urlshortner.models.User;
-import org.springframework.data.jpa.repository.JpaRepository;
+import com.iaschowrai.urlshortner.service.urlservice.RedirectTarget;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
-public interface UrlMappingRepository extends JpaRepository<UrlMapping, Long> {
+public interface UrlMappingRepository extends NaturalIdRepository<UrlMapping, Long> {
 
-    UrlMapping findByShortUrl(String shortUrl);
-    List<UrlMapping> findByUser(User user);
+    // What the redirect path and ownership checks need, as one indexed lookup; the owner id comes from the FK column
+    @Query("select new com.iaschowrai.urlshortner.service.urlservice.RedirectTarget(u.id, u.user.id, u.shortUrl, u.originalUrl) " +
+            "from UrlMapping u where u.shortUrl = :shortUrl")
+    RedirectTarget findRedirectTargetByShortUrl(@Param("shortUrl") String shortUrl);
+
+    // All mappings of a user as DTOs, newest first; no entities or User rows are loaded
+    @Query("select new com.iaschowrai.urlshortner.dtos.UrlMappingDTO(u.id, u.originalUrl, u.shortUrl, u.clickCount, u.createdDate) " +
+            "from UrlMapping u where u.user.id = :userId order by u.id desc")
+    List<UrlMappingDTO> findDtosByUserId(@Param("userId") Long userId);
+
+    // Ids only, for filtering click_events without joining url_mappings
+    @Query("select u.id from UrlMapping u where u.user.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+
+    // One keyset page: the next `limit` mappings with an id below the cursor, newest first
+    @Query("select new com.iaschowrai.urlshortner.dtos.UrlMappingDTO(u.id, u.originalUrl, u.shortUrl, u.clickCount, u.createdDate) " +
+            "from UrlMapping u where u.user.id = :userId and u.id < :beforeId order by u.id desc")
+    List<UrlMappingDTO> findDtoPageByUserId(@Param("userId") Long userId, @Param("beforeId") Long beforeId, Limit limit);
 
 }
@@ -0,0 +1,117 @@
+package com.iaschowrai.urlshortner.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Builds the `UrlMappingShards`. With `url.shards.enabled=false` the application database is the only one. Otherwise one
+pool is created per JDBC URL in `url.shards.urls`, with the application database's driver and credentials unless
+`url.shards.username` and `password` are set, and with the pool settings under `url.shards.hikari.*`. Each shard gets
+the `url_mappings` table from `db/url-mappings-shard.sql` on startup unless `url.shards.initialize-schema=false`.
+
+Once sharding is enabled, click events, rollups and the rebalancer's deletes refer to mappings that are not in the
+application database's `url_mappings`, so any foreign key to that table is dropped on startup. Fresh schemas never get
+one (see `ClickEvent`), but Hibernate's schema update does not remove one created before.
+
+Shard pools publish `hikaricp.connections.*{pool=shard-N}`.
+ */
+@Configuration
+public class UrlMappingShardConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(UrlMappingShardConfig.class);
+
+    private static final String SHARD_SCHEMA = "db/url-mappings-shard.sql";
+
+    @Bean(destroyMethod = "close")
+    public UrlMappingShards urlMappingShards(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                             DataSourceProperties properties, Environment environment,
+                                             MeterRegistry meterRegistry) {
+        UrlMappingShards.Shard primary = new UrlMappingShards.Shard("primary", jdbcTemplate,
+                new TransactionTemplate(transactionManager));
+
+        Binder binder = Binder.get(environment);
+        if (!binder.bind("url.shards.enabled", Boolean.class).orElse(false)) {
+            return new UrlMappingShards(primary, List.of(), false);
+        }
+
+        List<String> urls = binder.bind("url.shards.urls", Bindable.listOf(String.class)).orElse(List.of());
+        String username = binder.bind("url.shards.username", String.class).orElse(properties.determineUsername());
+        String password = binder.bind("url.shards.password", String.class).orElse(properties.determinePassword());
+        boolean initializeSchema = binder.bind("url.shards.initialize-schema", Boolean.class).orElse(true);
+        boolean rebalancing = binder.bind("url.shards.rebalancing", Boolean.class).orElse(false);
+        MicrometerMetricsTrackerFactory metricsTrackerFactory = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+        List<UrlMappingShards.Shard> shards = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            String name = "shard-" + shards.size();
+            HikariDataSource pool = DataSourceBuilder.create(properties.getClassLoader())
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(username)
+                    .password(password)
+                    .build();
+            binder.bind("url.shards.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName(name);
+            pool.setMetricsTrackerFactory(metricsTrackerFactory);
+            if (initializeSchema) {
+                DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource(SHARD_SCHEMA)), pool);
+            }
+            shards.add(UrlMappingShards.shard(name, pool));
+        }
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("url.shards.enabled is set but url.shards.urls lists no shard.");
+        }
+
+        dropForeignKeysToUrlMappings(jdbcTemplate);
+        logger.info("Sharding url_mappings across {} shard(s){}.", shards.size(), rebalancing ? ", rebalance in progress" : "");
+        return new UrlMappingShards(primary, shards, rebalancing);
+    }
+
+    private static void dropForeignKeysToUrlMappings(JdbcTemplate jdbcTemplate) {
+        // Foreign key name to referencing table; a key over several columns is listed once per column
+        Map<String, String> foreignKeys = jdbcTemplate.execute((ConnectionCallback<Map<String, String>>) connection -> {
+            Map<String, String> keys = new LinkedHashMap<>();
+            try (ResultSet resultSet = connection.getMetaData()
+                    .getExportedKeys(connection.getCatalog(), connection.getSchema(), "url_mappings")) {
+                while (resultSet.next()) {
+                    keys.put(resultSet.getString("FK_NAME"), resultSet.getString("FKTABLE_NAME"));
+                }
+            }
+            return keys;
+        });
+        if (foreignKeys == null) {
+            return;
+        }
+        foreignKeys.forEach((name, table) -> {
+            logger.warn("Dropping foreign key {} from {} to url_mappings, which no longer holds every mapping.", name, table);
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP FOREIGN KEY `" + name + "`");
+        });
+    }
+}
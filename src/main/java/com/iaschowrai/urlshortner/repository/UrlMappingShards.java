@@ -0,0 +1,137 @@
+package com.iaschowrai.urlshortner.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+The `UrlMappingShards` are the databases that hold `url_mappings`. Without sharding that is the application database
+alone. With `url.shards.enabled` every short code has exactly one owner among the configured shards, chosen by
+rendezvous hashing: each shard scores the code with a hash seeded by the shard's position and the highest score wins.
+Appending a shard therefore only moves the codes the new shard now wins, about 1/N of them, and the position of a shard
+in `url.shards.urls` must never change.
+
+While `url.shards.rebalancing` is set, rows may still sit on a shard that no longer owns them, or in the application
+database's table from before sharding, until the `UrlMappingRebalancer` has moved them. Lookups that miss on the owner
+then check the other databases as well.
+ */
+public class UrlMappingShards implements AutoCloseable {
+
+    private final Shard primary;
+    private final List<Shard> shards;
+    private final boolean rebalancing;
+    private final long[] seeds;
+    private final List<Shard> databases;
+
+    public UrlMappingShards(Shard primary, List<Shard> shards, boolean rebalancing) {
+        this.primary = primary;
+        this.shards = List.copyOf(shards);
+        this.rebalancing = rebalancing && !shards.isEmpty();
+
+        this.seeds = new long[this.shards.size()];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = mix((i + 1) * 0x9E3779B97F4A7C15L);
+        }
+
+        List<Shard> all = new ArrayList<>(this.shards);
+        if (all.isEmpty() || this.rebalancing) {
+            all.add(primary);
+        }
+        this.databases = List.copyOf(all);
+    }
+
+    // A shard backed by its own pool, with local transactions on that pool
+    public static Shard shard(String name, DataSource dataSource) {
+        return new Shard(name, new JdbcTemplate(dataSource), new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+
+    public boolean isSharded() {
+        return !shards.isEmpty();
+    }
+
+    public boolean isRebalancing() {
+        return rebalancing;
+    }
+
+    // The application database; owns every code when not sharded
+    public Shard primary() {
+        return primary;
+    }
+
+    public List<Shard> shards() {
+        return shards;
+    }
+
+    // Every database that may hold a mapping right now: the shards, plus the application database when it is the only
+    // one or while a rebalance is running
+    public List<Shard> databases() {
+        return databases;
+    }
+
+    public Shard shardFor(String shortUrl) {
+        if (shards.isEmpty()) {
+            return primary;
+        }
+        long hash = hash(shortUrl);
+        int owner = 0;
+        long best = Long.MIN_VALUE;
+        for (int i = 0; i < seeds.length; i++) {
+            long score = mix(hash ^ seeds[i]);
+            if (score > best) {
+                best = score;
+                owner = i;
+            }
+        }
+        return shards.get(owner);
+    }
+
+    // Where else a code may be found: nowhere unless a rebalance is running, then every other database
+    public List<Shard> fallbacksFor(Shard owner) {
+        if (!rebalancing) {
+            return List.of();
+        }
+        return databases.stream().filter(shard -> shard != owner).toList();
+    }
+
+    // Closes the shard pools; the application database is managed by Spring
+    @Override
+    public void close() throws Exception {
+        for (Shard shard : shards) {
+            if (shard.jdbcTemplate().getDataSource() instanceof AutoCloseable pool) {
+                pool.close();
+            }
+        }
+    }
+
+    // FNV-1a over the UTF-16 code units, finished with the avalanche step below
+    private static long hash(String shortUrl) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < shortUrl.length(); i++) {
+            hash ^= shortUrl.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    // MurmurHash3 fmix64
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    public record Shard(String name, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
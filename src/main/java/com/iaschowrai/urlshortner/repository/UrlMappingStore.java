@@ -0,0 +1,86 @@
+package com.iaschowrai.urlshortner.repository;
+
+import com.iaschowrai.urlshortner.dtos.UrlMappingDTO;
+import com.iaschowrai.urlshortner.models.User;
+import com.iaschowrai.urlshortner.service.urlservice.RedirectTarget;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+Storage of `url_mappings` as the services use it. `JpaUrlMappingStore` keeps the table in the application database and
+goes through `UrlMappingRepository` and the second-level cache; `ShardedUrlMappingStore` spreads it across the
+`UrlMappingShards` with plain JDBC. Which one is active follows `url.shards.enabled`.
+
+DTOs are returned without the owner's username, which the service fills in.
+ */
+public interface UrlMappingStore {
+
+    // Rows per page when streaming a user's mappings
+    int STREAM_PAGE_SIZE = 1000;
+
+    // The redirect lookup; may be answered from a cache
+    RedirectTarget findRedirectTarget(String shortUrl);
+
+    // Always reads the table and loads no entity; for ownership checks before writes and for analytics
+    RedirectTarget findRedirectTargetUncached(String shortUrl);
+
+    UrlMappingDTO create(String originalUrl, String shortUrl, User user);
+
+    // Inserts in as few batches as possible, falling back to one row at a time for a batch that fails; returns, per
+    // input row, whether it was created
+    boolean[] createAll(List<NewUrlMapping> mappings);
+
+    // All mappings of a user, newest first
+    List<UrlMappingDTO> findDtosByUserId(Long userId);
+
+    // Ids of all mappings of a user, in no particular order
+    List<Long> findIdsByUserId(Long userId);
+
+    // Keyset page: the next `limit` mappings with an id below beforeId, newest first
+    List<UrlMappingDTO> findDtoPageByUserId(Long userId, long beforeId, int limit);
+
+    // All mappings of a user, newest first, without holding them in memory. Reads one keyset page at a time, so no
+    // connection or cursor stays open between pages and a slow consumer holds nothing in the database
+    default Stream<UrlMappingDTO> streamDtosByUserId(Long userId) {
+        Iterator<UrlMappingDTO> pages = new Iterator<>() {
+            private Iterator<UrlMappingDTO> page = List.<UrlMappingDTO>of().iterator();
+            private long cursor = Long.MAX_VALUE;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (!page.hasNext() && !exhausted) {
+                    List<UrlMappingDTO> next = findDtoPageByUserId(userId, cursor, STREAM_PAGE_SIZE);
+                    exhausted = next.size() < STREAM_PAGE_SIZE;
+                    if (!next.isEmpty()) {
+                        cursor = next.get(next.size() - 1).getId();
+                    }
+                    page = next.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public UrlMappingDTO next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // Deletes without loading the row or cascading to its clicks
+    int deleteMapping(Long id, String shortUrl);
+
+    record NewUrlMapping(String originalUrl, String shortUrl, Long userId, LocalDateTime createdDate) {
+    }
+}
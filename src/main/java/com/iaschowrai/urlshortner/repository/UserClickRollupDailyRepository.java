@@ -0,0 +1,14 @@
+package com.iaschowrai.urlshortner.repository;
+
+import com.iaschowrai.urlshortner.models.UserClickRollupDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface UserClickRollupDailyRepository extends JpaRepository<UserClickRollupDaily, UserClickRollupDaily.Key> {
+
+    List<UserClickRollupDaily> findByUserIdAndBucketDateBetween(Long userId, LocalDate startDate, LocalDate endDate);
+}
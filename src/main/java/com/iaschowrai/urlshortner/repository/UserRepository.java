@@ -1,19 +1,26 @@
 package com.iaschowrai.urlshortner.repository;
 
 import com.iaschowrai.urlshortner.models.User;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends NaturalIdRepository<User, Long> {
 
     boolean existsByUsername(String username);
 
     boolean existsByEmail(String email);
 
-    Optional<User> findByUsername(String username);
+    // Always reads the database: revocations made on other nodes are not in this node's second-level cache
+    @Query("select u.tokenVersion from User u where u.id = :id")
+    Optional<Integer> findTokenVersionById(@Param("id") Long id);
 
+    @Modifying
+    @Query("update User u set u.tokenVersion = u.tokenVersion + 1 where u.id = :id")
+    int incrementTokenVersion(@Param("id") Long id);
 
 }
@@ -1,5 +1,8 @@
 package com.iaschowrai.urlshortner.security;
 
+import com.iaschowrai.urlshortner.service.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,6 +10,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -33,6 +37,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenVersionCache tokenVersionCache;
+
+    // When enabled, the principal is rebuilt from the token claims instead of being loaded from the database
+    @Value("${jwt.stateless.enabled:false}")
+    private boolean stateless;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -42,12 +53,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try{
             String jwt = jwtTokenProvider.getJwtFromHeader(request);
 
-            if(jwt != null && jwtTokenProvider.validateToken(jwt)){
-                String username = jwtTokenProvider.getUserNameFromJwtToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            if(jwt != null){
+                // One verification per request; repeated tokens are served from the verified-token cache
+                Claims claims = jwtTokenProvider.parseAndValidate(jwt);
+                String username = claims.getSubject();
+                UserDetails userDetails = loadUserDetails(claims);
 
                 if(userDetails != null){
-                    logger.info("Authenticated user: " + username);
+                    logger.debug("Authenticated user: {}", username);
 
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities());
@@ -57,9 +70,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 }
             }
         } catch(Exception e){
-            logger.error("Authentication failed. Invalid or expired JWT token.", e);
+            // No stack trace: invalid tokens are client errors and can arrive at request rate
+            logger.warn("Authentication failed. Invalid or expired JWT token: {}", e.getMessage());
         }
 
         filterChain.doFilter(request,response);
     }
+
+    /*
+    Resolves the principal for verified claims. In stateless mode tokens carrying a user id are trusted as long as their
+    token version is still current; older tokens without those claims fall back to the database lookup, which also
+    checks the version.
+     */
+    private UserDetails loadUserDetails(Claims claims) {
+        Number userId = claims.get(JwtUtils.USER_ID_CLAIM, Number.class);
+        Number tokenVersion = claims.get(JwtUtils.TOKEN_VERSION_CLAIM, Number.class);
+
+        if (stateless && userId != null && tokenVersion != null) {
+            if (!tokenVersionCache.isCurrent(userId.longValue(), tokenVersion.intValue())) {
+                throw new JwtException("JWT token has been revoked.");
+            }
+            String roles = claims.get(JwtUtils.ROLES_CLAIM, String.class);
+            return UserDetailsImpl.fromClaims(userId.longValue(), claims.getSubject(),
+                    roles == null ? "" : roles, tokenVersion.intValue());
+        }
+
+        UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        int currentVersion = userDetails instanceof UserDetailsImpl details ? details.getTokenVersion() : 0;
+        if (currentVersion != (tokenVersion == null ? 0 : tokenVersion.intValue())) {
+            throw new JwtException("JWT token has been revoked.");
+        }
+        return userDetails;
+    }
 }
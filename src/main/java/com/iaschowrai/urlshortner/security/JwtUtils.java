@@ -1,34 +1,97 @@
 package com.iaschowrai.urlshortner.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.iaschowrai.urlshortner.service.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /*
 The `JwtUtils` class handles JSON Web Token (JWT) operations, including token generation, validation, and extraction
-of user details. It generates tokens with a subject (username) and roles, signs them using a secret key, and sets an
+of user details. It generates tokens with a subject (username), roles, user id and token version, signs them using a secret key, and sets an
 expiration time. It also provides methods to extract the JWT from an HTTP request header and retrieve the username
 from a given token. This utility is essential for implementing authentication in a Spring Boot application using
 JWT-based security.
+
+The signing key and parser are built once. Verified tokens are kept in a bounded cache keyed by the SHA-256 of the
+token until their `exp`, so repeated calls with the same token skip signature verification and JSON parsing entirely.
  */
 
 @Component
 public class JwtUtils {
 
+    public static final String ROLES_CLAIM = "roles";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
     @Value("${jwt.expiration}")
     private int jwtExpirationMS;
+    @Value("${jwt.cache.maximum-size:10000}")
+    private long verifiedTokenCacheSize;
+
+    private final MeterRegistry meterRegistry;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Cache<String, Claims> verifiedTokens;
+    private Timer cachedValidations;
+    private Timer verifiedValidations;
+    private Timer rejectedValidations;
+
+    public JwtUtils(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Build the signing key, parser and token cache once the secret has been injected
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedTokenCacheSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt");
+        cachedValidations = validationTimer("cached");
+        verifiedValidations = validationTimer("verified");
+        rejectedValidations = validationTimer("rejected");
+    }
+
+    // Time spent in parseAndValidate, by outcome: served from the cache, verified, or rejected
+    private Timer validationTimer(String result) {
+        return Timer.builder("jwt.validation")
+                .description("JWT validation time")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
     // Extract JWT from the Authorization header
     public String getJwtFromHeader(HttpServletRequest request){
@@ -47,44 +110,85 @@ public class JwtUtils {
                 .collect(Collectors.joining(","));
         return Jwts.builder()
                 .subject(username)
-                .claim("roles", roles)
+                .claim(ROLES_CLAIM, roles)
+                .claim(USER_ID_CLAIM, userDetails.getId())
+                .claim(TOKEN_VERSION_CLAIM, userDetails.getTokenVersion())
                 .issuedAt(new Date())
                 .expiration(new Date((new Date().getTime() + jwtExpirationMS)))
-                .signWith(key())
+                .signWith(signingKey)
                 .compact();
     }
 
     // Get username from the JWT token
     public String getUserNameFromJwtToken(String token){
-        return Jwts.parser()
-                .verifyWith((SecretKey) key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+        return parseAndValidate(token).getSubject();
     }
 
-    // Generate the signing key from the base64 decoded JWT secret
+    // The signing key, decoded from the base64 JWT secret at startup
     public Key key(){
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        return signingKey;
     }
 
     // Validate JWT token's integrity and expiration
     public boolean validateToken(String authToken){
+        parseAndValidate(authToken);
+        return true;
+    }
+
+    /**
+     * Verifies the token once and returns its claims.
+     * Throws JwtException if the token is invalid or expired.
+     */
+    public Claims parseAndValidate(String token){
+        long started = System.nanoTime();
+        String tokenHash = hash(token);
+        Claims cached = verifiedTokens.getIfPresent(tokenHash);
+        if (cached != null) {
+            cachedValidations.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return cached;
+        }
         try {
-            Jwts.parser()
-                    .verifyWith((SecretKey) key())
-                    .build()
-                    .parseSignedClaims(authToken);
-            return true;
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(tokenHash, claims);
+            }
+            verifiedValidations.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return claims;
         } catch (JwtException e) {
-            // Logging can be added here for better debugging
+            rejectedValidations.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
             throw new JwtException("Invalid or expired JWT token.", e);
         } catch (Exception e) {
-            // Log and handle other exceptions
+            rejectedValidations.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
             throw new RuntimeException("Unexpected error during token validation.", e);
         }
     }
 
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    // Keeps a verified token exactly until its exp claim
+    private static final class UntilTokenExpiry implements Expiry<String, Claims> {
 
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -0,0 +1,54 @@
+package com.iaschowrai.urlshortner.security;
+
+import com.iaschowrai.urlshortner.repository.ReadYourWrites;
+import com.iaschowrai.urlshortner.service.UserDetailsImpl;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/*
+The ReadYourWritesFilter runs after authentication and keeps all reads of a request on the primary database while the
+authenticated user is inside their read-your-writes window, so listing links or loading analytics right after creating
+or deleting one sees the change even if the replicas lag behind.
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReadYourWritesFilter(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        if (!isRecentWriter()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try (ReadYourWrites.PrimaryScope ignored = readYourWrites.pinToPrimary()) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private boolean isRecentWriter() {
+        if (!readYourWrites.isEnabled()) {
+            return false;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null
+                && authentication.getPrincipal() instanceof UserDetailsImpl userDetails
+                && readYourWrites.isRecentlyWritten(ReadYourWrites.userKey(userDetails.getId()));
+    }
+}
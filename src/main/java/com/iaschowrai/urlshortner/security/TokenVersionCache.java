@@ -0,0 +1,59 @@
+package com.iaschowrai.urlshortner.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.iaschowrai.urlshortner.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/*
+The `TokenVersionCache` keeps revocation working when principals are rebuilt from JWT claims. It maps a user id to the
+user's current token version, loaded with a single-column query and kept for `jwt.stateless.version-cache-ttl-seconds`.
+A token whose `ver` claim is older than the cached version has been revoked. Revocations made on this node are applied
+to the cache immediately; other nodes pick them up when their entry expires.
+ */
+@Component
+public class TokenVersionCache {
+
+    // Returned for users that no longer exist, so none of their tokens match
+    private static final int UNKNOWN_USER = -1;
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Integer> versions;
+
+    public TokenVersionCache(UserRepository userRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${jwt.stateless.version-cache-size:100000}") long maximumSize,
+                             @Value("${jwt.stateless.version-cache-ttl-seconds:30}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "token-versions");
+    }
+
+    // Loads outside of the cache's locks so a lookup never pins a virtual thread's carrier
+    public boolean isCurrent(long userId, int tokenVersion) {
+        Integer currentVersion = versions.getIfPresent(userId);
+        if (currentVersion == null) {
+            currentVersion = loadVersion(userId);
+            versions.put(userId, currentVersion);
+        }
+        return currentVersion == tokenVersion;
+    }
+
+    // Records a version bump made by this node so revoked tokens are rejected right away
+    public void update(long userId, int tokenVersion) {
+        versions.put(userId, tokenVersion);
+    }
+
+    private Integer loadVersion(Long userId) {
+        return userRepository.findTokenVersionById(userId).orElse(UNKNOWN_USER);
+    }
+}
@@ -6,8 +6,10 @@ import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -33,10 +35,12 @@ public class WebSecurityConfig {
     private static final Logger logger = LoggerFactory.getLogger(WebSecurityConfig.class);
 
     private final UserDetailsServiceImpl userDetailsService;
+    private final ReadYourWritesFilter readYourWritesFilter;
 
     @Autowired // Add this annotation for constructor injection
-    public WebSecurityConfig(UserDetailsServiceImpl userDetailsService) {
+    public WebSecurityConfig(UserDetailsServiceImpl userDetailsService, ReadYourWritesFilter readYourWritesFilter) {
         this.userDetailsService = userDetailsService;
+        this.readYourWritesFilter = readYourWritesFilter;
     }
 
     /**
@@ -89,7 +93,9 @@ public class WebSecurityConfig {
 
         // Configuring authorization rules for specific API endpoints
             .authorizeHttpRequests(auth -> auth
+                .requestMatchers(EndpointRequest.toAnyEndpoint()).permitAll() // Actuator, only served on the management port
                 .requestMatchers("/api/auth/**").permitAll() // Allowing public access to auth endpoints and short URL mappings
+                .requestMatchers(HttpMethod.POST, "/internal/edge/clicks").permitAll() // Checked against url.edge.ingest-token by the controller
                 .requestMatchers("/api/urls/**").authenticated() // Restricting /api/urls/** endpoints to authenticated users
                     .requestMatchers( "/{shortUrl}").permitAll() // Allowing public access to short URL mappings
                     .anyRequest().authenticated()); // Enforcing authentication for all other requests
@@ -100,6 +106,9 @@ public class WebSecurityConfig {
         // Adding JWT Authentication Filter before the UsernamePasswordAuthenticationFilter
         http.addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
 
+        // Pinning reads to the primary after a write needs the authenticated user, so it runs after the JWT filter
+        http.addFilterAfter(readYourWritesFilter, JwtAuthenticationFilter.class);
+
         logger.info("Security filter chain configured successfully.");
 
         return http.build();
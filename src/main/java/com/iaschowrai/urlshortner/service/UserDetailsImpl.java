@@ -8,8 +8,10 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 /*
 The `UserDetailsImpl` class is a custom implementation of Spring Security's `UserDetails` interface, which is used
@@ -31,26 +33,48 @@ public class UserDetailsImpl implements UserDetails {
     private String email;
     private String password;
     private Collection< ? extends  GrantedAuthority> authorities;
+    private int tokenVersion;
 
     public UserDetailsImpl(long id, String username, String email, String password, Collection<? extends GrantedAuthority> authorities) {
+        this(id, username, email, password, authorities, 0);
+    }
+
+    public UserDetailsImpl(long id, String username, String email, String password,
+                           Collection<? extends GrantedAuthority> authorities, int tokenVersion) {
         this.id = id;
         this.username = username;
         this.email = email;
         this.password = password;
         this.authorities = authorities;
+        this.tokenVersion = tokenVersion;
     }
 
     public static UserDetailsImpl build(User user){
+        return build(user, user.getTokenVersion());
+    }
+
+    // For users read from the second-level cache, with the token version read from the database
+    public static UserDetailsImpl build(User user, int tokenVersion){
         GrantedAuthority authority = new SimpleGrantedAuthority(user.getRole());
         return new UserDetailsImpl(
                 user.getId(),
                 user.getUsername(),
                 user.getEmail(),
                 user.getPassword(),
-                Collections.singletonList(authority)
+                Collections.singletonList(authority),
+                tokenVersion
         );
     }
 
+    // Rebuilds the principal from verified JWT claims without touching the database; email and password stay empty
+    public static UserDetailsImpl fromClaims(long id, String username, String roles, int tokenVersion){
+        List<GrantedAuthority> authorities = Arrays.stream(roles.split(","))
+                .filter(role -> !role.isBlank())
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.trim()))
+                .toList();
+        return new UserDetailsImpl(id, username, null, null, authorities, tokenVersion);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
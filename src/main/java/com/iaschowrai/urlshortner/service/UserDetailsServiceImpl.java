@@ -18,8 +18,10 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        User user = userRepository.findBySimpleNaturalId(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username"+ username));
-        return UserDetailsImpl.build(user);
+        // The user may come from the second-level cache; its token version is read fresh so revocations on any node count
+        int tokenVersion = userRepository.findTokenVersionById(user.getId()).orElse(user.getTokenVersion());
+        return UserDetailsImpl.build(user, tokenVersion);
     }
 }
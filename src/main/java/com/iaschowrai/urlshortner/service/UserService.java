@@ -7,6 +7,7 @@ import com.iaschowrai.urlshortner.models.User;
 import com.iaschowrai.urlshortner.repository.UserRepository;
 import com.iaschowrai.urlshortner.security.JwtAuthenticationResponse;
 import com.iaschowrai.urlshortner.security.JwtUtils;
+import com.iaschowrai.urlshortner.security.TokenVersionCache;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -23,14 +24,17 @@ public class UserService {
     private final UserRepository userRepository;
     private final AuthenticationManager authenticationManager;
     private final JwtUtils jwtUtils;
+    private final TokenVersionCache tokenVersionCache;
 
     // Constructor Injection
     public UserService(PasswordEncoder passwordEncoder, UserRepository userRepository,
-                       AuthenticationManager authenticationManager, JwtUtils jwtUtils) {
+                       AuthenticationManager authenticationManager, JwtUtils jwtUtils,
+                       TokenVersionCache tokenVersionCache) {
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
         this.authenticationManager = authenticationManager;
         this.jwtUtils = jwtUtils;
+        this.tokenVersionCache = tokenVersionCache;
     }
 
     public JwtAuthenticationResponse authenticateUser(LoginRequest loginRequest){
@@ -66,8 +70,31 @@ public class UserService {
     }
 
     public User findByUsername(String name) {
-        return userRepository.findByUsername(name).orElseThrow(
+        return userRepository.findBySimpleNaturalId(name).orElseThrow(
                 () -> new UsernameNotFoundException("User not found with username" + name));
 
     }
+
+    /**
+     * Returns a detached User for the authenticated principal without querying the database.
+     * It only carries the id, username and role, which is all the URL services need to reference the owner.
+     */
+    public User toUserReference(UserDetailsImpl userDetails) {
+        User user = new User();
+        user.setId(userDetails.getId());
+        user.setUsername(userDetails.getUsername());
+        userDetails.getAuthorities().stream().findFirst()
+                .ifPresent(authority -> user.setRole(authority.getAuthority()));
+        user.setTokenVersion(userDetails.getTokenVersion());
+        return user;
+    }
+
+    // Invalidates every token issued to the user so far
+    @Transactional
+    public void revokeTokens(UserDetailsImpl userDetails) {
+        userRepository.incrementTokenVersion(userDetails.getId());
+        int tokenVersion = userRepository.findTokenVersionById(userDetails.getId()).orElseThrow(
+                () -> new UsernameNotFoundException("User not found with username" + userDetails.getUsername()));
+        tokenVersionCache.update(userDetails.getId(), tokenVersion);
+    }
 }
@@ -0,0 +1,9 @@
+package com.iaschowrai.urlshortner.service.clicklog;
+
+// Attributes of an enriched click that analytics can group by
+public enum ClickDimension {
+    REFERRER,
+    COUNTRY,
+    BROWSER,
+    DEVICE
+}
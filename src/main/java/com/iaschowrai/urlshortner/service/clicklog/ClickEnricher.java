@@ -0,0 +1,107 @@
+package com.iaschowrai.urlshortner.service.clicklog;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/*
+The `ClickEnricher` turns the raw request fields of a click into the low-cardinality values the segment log stores:
+the referrer host, the country of the client address, and the browser and device class from the user agent. It runs on
+the background writer, never on the request thread. The user-agent rules are deliberately coarse: they only separate
+the major browser families, bots, and mobile, tablet and desktop devices.
+ */
+@Component
+public class ClickEnricher {
+
+    public static final String DIRECT = "(direct)";
+    public static final String UNKNOWN = "(unknown)";
+
+    private static final String[] BOT_MARKERS = {"bot", "crawl", "spider", "slurp", "curl/", "wget/", "python-", "java/", "httpclient", "okhttp", "headless"};
+
+    private final IpCountryDatabase ipCountryDatabase;
+
+    public ClickEnricher(IpCountryDatabase ipCountryDatabase) {
+        this.ipCountryDatabase = ipCountryDatabase;
+    }
+
+    // Lower-case host of the referrer without a leading "www.", or DIRECT when there is none
+    public String referrerHost(String referrer) {
+        if (referrer == null || referrer.isBlank()) {
+            return DIRECT;
+        }
+        int start = referrer.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < referrer.length() && "/?#:".indexOf(referrer.charAt(end)) < 0) {
+            end++;
+        }
+        int userInfo = referrer.lastIndexOf('@', end - 1);
+        if (userInfo >= start) {
+            start = userInfo + 1;
+        }
+        String host = referrer.substring(start, end).toLowerCase(Locale.ROOT);
+        if (host.startsWith("www.")) {
+            host = host.substring(4);
+        }
+        return host.isEmpty() ? UNKNOWN : host;
+    }
+
+    public String country(String remoteAddress) {
+        return ipCountryDatabase.lookup(remoteAddress);
+    }
+
+    public String browser(String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return UNKNOWN;
+        }
+        String ua = userAgent.toLowerCase(Locale.ROOT);
+        if (isBot(ua)) {
+            return "Bot";
+        }
+        if (ua.contains("edg/") || ua.contains("edge/")) {
+            return "Edge";
+        }
+        if (ua.contains("opr/") || ua.contains("opera")) {
+            return "Opera";
+        }
+        if (ua.contains("samsungbrowser/")) {
+            return "Samsung Internet";
+        }
+        if (ua.contains("firefox/") || ua.contains("fxios/")) {
+            return "Firefox";
+        }
+        if (ua.contains("chrome/") || ua.contains("crios/")) {
+            return "Chrome";
+        }
+        if (ua.contains("safari/")) {
+            return "Safari";
+        }
+        return "Other";
+    }
+
+    public String device(String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return UNKNOWN;
+        }
+        String ua = userAgent.toLowerCase(Locale.ROOT);
+        if (isBot(ua)) {
+            return "Bot";
+        }
+        if (ua.contains("ipad") || ua.contains("tablet") || (ua.contains("android") && !ua.contains("mobile"))) {
+            return "Tablet";
+        }
+        if (ua.contains("mobi") || ua.contains("iphone") || ua.contains("android")) {
+            return "Mobile";
+        }
+        return "Desktop";
+    }
+
+    private static boolean isBot(String ua) {
+        for (String marker : BOT_MARKERS) {
+            if (ua.contains(marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
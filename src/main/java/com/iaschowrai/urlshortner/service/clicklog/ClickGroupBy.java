@@ -0,0 +1,22 @@
+package com.iaschowrai.urlshortner.service.clicklog;
+
+// Fields an analytics query can group clicks by: a UTC time bucket or one of the click dimensions
+public enum ClickGroupBy {
+    DAY(null),
+    HOUR(null),
+    REFERRER(ClickDimension.REFERRER),
+    COUNTRY(ClickDimension.COUNTRY),
+    BROWSER(ClickDimension.BROWSER),
+    DEVICE(ClickDimension.DEVICE);
+
+    private final ClickDimension dimension;
+
+    ClickGroupBy(ClickDimension dimension) {
+        this.dimension = dimension;
+    }
+
+    // Null for the time buckets
+    public ClickDimension getDimension() {
+        return dimension;
+    }
+}
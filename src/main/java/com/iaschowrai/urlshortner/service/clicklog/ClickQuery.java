@@ -0,0 +1,17 @@
+package com.iaschowrai.urlshortner.service.clicklog;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An analytics query over the click segment log: clicks of the given mappings (or of all of the user's mappings when
+ * urlMappingIds is null) between start and end inclusive, grouped by up to three fields, largest groups first.
+ */
+public record ClickQuery(List<ClickGroupBy> groupBy,
+                         Collection<Long> urlMappingIds,
+                         Long userId,
+                         LocalDateTime start,
+                         LocalDateTime end,
+                         int limit) {
+}
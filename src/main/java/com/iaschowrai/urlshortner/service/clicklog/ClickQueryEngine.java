@@ -0,0 +1,190 @@
+package com.iaschowrai.urlshortner.service.clicklog;
+
+import com.iaschowrai.urlshortner.dtos.ClickGroupCountDTO;
+import com.iaschowrai.urlshortner.dtos.ClickQueryResultDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/*
+The `ClickQueryEngine` answers group-by queries over the `ClickSegmentLog` without touching the database. Each
+segment is already columnar (primitive int, short and byte columns plus small dictionaries), so a query is a scan over
+those columns split into row ranges of `url.analytics.query.split-rows` and run on a dedicated fork-join pool.
+
+Per row, the group key is packed into a single long (20 bits per field: a day or hour bucket counted from the start of
+the range, or a dictionary code) and counted in an open-addressing primitive map; nothing is boxed or allocated per
+click. Segments outside the time range or without any of the requested mappings are skipped before the scan. Dictionary
+codes are only meaningful within a segment, so keys are decoded to values per segment and merged afterwards.
+ */
+@Component
+public class ClickQueryEngine {
+
+    public static final int MAX_GROUP_BY = 3;
+
+    private static final int FIELD_BITS = 20;
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final long SECONDS_PER_HOUR = 3_600;
+
+    private final ClickSegmentLog clickSegmentLog;
+    private final ForkJoinPool pool;
+    private final int splitRows;
+
+    public ClickQueryEngine(ClickSegmentLog clickSegmentLog,
+                            @Value("${url.analytics.query.parallelism:0}") int parallelism,
+                            @Value("${url.analytics.query.split-rows:65536}") int splitRows) {
+        this.clickSegmentLog = clickSegmentLog;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.splitRows = splitRows;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public ClickQueryResultDTO query(ClickQuery query) {
+        ClickGroupBy[] fields = query.groupBy().toArray(new ClickGroupBy[0]);
+        if (fields.length > MAX_GROUP_BY) {
+            throw new IllegalArgumentException("At most " + MAX_GROUP_BY + " groupBy fields are supported.");
+        }
+        long from = query.start().toEpochSecond(ZoneOffset.UTC);
+        long to = query.end().toEpochSecond(ZoneOffset.UTC);
+        if (to < from) {
+            throw new IllegalArgumentException("The end of the range is before its start.");
+        }
+        for (ClickGroupBy field : fields) {
+            if (field.getDimension() == null && bucket(field, to) - bucket(field, from) > FIELD_MASK) {
+                throw new IllegalArgumentException("The range has too many " + field.name().toLowerCase() + " buckets.");
+            }
+        }
+
+        List<SegmentScan> scans = new ArrayList<>();
+        for (ClickSegment segment : clickSegmentLog.segments()) {
+            // Row count first, so the selected mapping codes cover every row that is scanned
+            int rows = segment.rowCount();
+            if (rows == 0 || segment.maxEpochSecond() < from || segment.minEpochSecond() > to) {
+                continue;
+            }
+            boolean[] selected = segment.selectMappings(query.urlMappingIds(), query.userId());
+            if (selected != null) {
+                scans.add(new SegmentScan(segment, selected, fields, from, to, 0, rows, splitRows));
+            }
+        }
+
+        Map<List<String>, Long> counts = new HashMap<>();
+        if (!scans.isEmpty()) {
+            pool.submit(() -> ForkJoinTask.invokeAll(scans)).join();
+            for (SegmentScan scan : scans) {
+                scan.join().forEach((key, count) ->
+                        counts.merge(decode(scan.segment, fields, from, key), count, Long::sum));
+            }
+        }
+
+        long totalClicks = 0;
+        for (long count : counts.values()) {
+            totalClicks += count;
+        }
+        List<ClickGroupCountDTO> groups = counts.entrySet().stream()
+                .sorted(Map.Entry.<List<String>, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry::getKey, Comparator.comparing(Object::toString)))
+                .limit(Math.max(query.limit(), 0))
+                .map(entry -> new ClickGroupCountDTO(entry.getKey(), entry.getValue()))
+                .toList();
+        List<String> groupBy = Arrays.stream(fields).map(field -> field.name().toLowerCase()).toList();
+        return new ClickQueryResultDTO(groupBy, groups, totalClicks);
+    }
+
+    private static List<String> decode(ClickSegment segment, ClickGroupBy[] fields, long from, long key) {
+        String[] values = new String[fields.length];
+        for (int i = fields.length - 1; i >= 0; i--) {
+            int code = (int) (key & FIELD_MASK);
+            key >>>= FIELD_BITS;
+            ClickGroupBy field = fields[i];
+            if (field == ClickGroupBy.DAY) {
+                values[i] = LocalDate.ofEpochDay(bucket(field, from) + code).toString();
+            } else if (field == ClickGroupBy.HOUR) {
+                values[i] = LocalDateTime.ofEpochSecond((bucket(field, from) + code) * SECONDS_PER_HOUR, 0, ZoneOffset.UTC).toString();
+            } else {
+                values[i] = segment.value(field.getDimension(), code);
+            }
+        }
+        return List.of(values);
+    }
+
+    private static long bucket(ClickGroupBy field, long epochSecond) {
+        return Math.floorDiv(epochSecond, field == ClickGroupBy.DAY ? SECONDS_PER_DAY : SECONDS_PER_HOUR);
+    }
+
+    // Counts the selected rows [fromRow, toRow) of one segment by packed group key, splitting large ranges
+    private static final class SegmentScan extends RecursiveTask<LongCountMap> {
+
+        private final ClickSegment segment;
+        private final boolean[] selected;
+        private final ClickGroupBy[] fields;
+        private final long from;
+        private final long to;
+        private final int fromRow;
+        private final int toRow;
+        private final int splitRows;
+
+        private SegmentScan(ClickSegment segment, boolean[] selected, ClickGroupBy[] fields,
+                            long from, long to, int fromRow, int toRow, int splitRows) {
+            this.segment = segment;
+            this.selected = selected;
+            this.fields = fields;
+            this.from = from;
+            this.to = to;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.splitRows = splitRows;
+        }
+
+        @Override
+        protected LongCountMap compute() {
+            if (toRow - fromRow > splitRows) {
+                int middle = (fromRow + toRow) >>> 1;
+                SegmentScan left = new SegmentScan(segment, selected, fields, from, to, fromRow, middle, splitRows);
+                SegmentScan right = new SegmentScan(segment, selected, fields, from, to, middle, toRow, splitRows);
+                left.fork();
+                LongCountMap counts = right.compute();
+                counts.addAll(left.join());
+                return counts;
+            }
+
+            long dayBase = Math.floorDiv(from, SECONDS_PER_DAY);
+            long hourBase = Math.floorDiv(from, SECONDS_PER_HOUR);
+            LongCountMap counts = new LongCountMap(256);
+            for (int row = fromRow; row < toRow; row++) {
+                long second = segment.epochSecond(row);
+                if (second < from || second > to || !selected[segment.mappingCode(row)]) {
+                    continue;
+                }
+                long key = 0;
+                for (ClickGroupBy field : fields) {
+                    long value = switch (field) {
+                        case DAY -> Math.floorDiv(second, SECONDS_PER_DAY) - dayBase;
+                        case HOUR -> Math.floorDiv(second, SECONDS_PER_HOUR) - hourBase;
+                        default -> segment.code(field.getDimension(), row);
+                    };
+                    key = (key << FIELD_BITS) | value;
+                }
+                counts.increment(key);
+            }
+            return counts;
+        }
+    }
+}
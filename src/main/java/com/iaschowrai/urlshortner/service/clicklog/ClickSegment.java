@@ -0,0 +1,412 @@
+package com.iaschowrai.urlshortner.service.clicklog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+A `ClickSegment` is one file of the click segment log: a memory-mapped, columnar block of enriched clicks.
+
+The file is a 32-byte header followed by one fixed-width column per attribute, each `capacity` rows long:
+click second relative to the segment's base epoch second (int), mapping code (int), referrer code (short), and country,
+browser and device codes (one byte each); 13 bytes per click. Codes index per-segment dictionaries that are appended to
+a sidecar `.dict` file as new values appear, so a restart can replay them. Referrers beyond 65535 distinct hosts and
+other values beyond 255 per segment are folded into the reserved code 0, `OTHER`.
+
+An active segment is preallocated and written in place; `commit` publishes the row count to the header. Sealing writes
+a compact copy with capacity equal to the row count and reopens it read-only. Appends are single-writer (the caller
+holds a lock); scans may run concurrently and see every row up to the row count they read first.
+ */
+public final class ClickSegment {
+
+    public static final String OTHER = "(other)";
+
+    static final String ACTIVE_SUFFIX = ".active";
+    static final String SEALED_SUFFIX = ".seg";
+    static final String DICTIONARY_SUFFIX = ".dict";
+
+    private static final int MAGIC = 0x43534547;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int ROW_COUNT_OFFSET = 20;
+    private static final int MIN_SECOND_OFFSET = 24;
+    private static final int MAX_SECOND_OFFSET = 28;
+    private static final int BYTES_PER_ROW = 13;
+    private static final int MAPPING_RECORD = 0xFF;
+
+    private final long sequence;
+    private final Path file;
+    private final Path dictionaryFile;
+    private final MappedByteBuffer buffer;
+    private final long baseEpochSecond;
+    private final int capacity;
+    private final int mappingOffset;
+    private final int[] dimensionOffsets = new int[ClickDimension.values().length];
+    private final int[] dimensionWidths = new int[ClickDimension.values().length];
+
+    private final MappingDictionary mappings = new MappingDictionary();
+    private final StringDictionary[] dictionaries = new StringDictionary[ClickDimension.values().length];
+    private DataOutputStream dictionaryLog;
+
+    private volatile int rowCount;
+    private volatile int minSecond = Integer.MAX_VALUE;
+    private volatile int maxSecond = Integer.MIN_VALUE;
+
+    private ClickSegment(long sequence, Path file, Path dictionaryFile, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.file = file;
+        this.dictionaryFile = dictionaryFile;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a click segment: " + file);
+        }
+        this.baseEpochSecond = buffer.getLong(8);
+        this.capacity = buffer.getInt(CAPACITY_OFFSET);
+        this.rowCount = buffer.getInt(ROW_COUNT_OFFSET);
+        this.minSecond = buffer.getInt(MIN_SECOND_OFFSET);
+        this.maxSecond = buffer.getInt(MAX_SECOND_OFFSET);
+
+        this.mappingOffset = HEADER_BYTES + 4 * capacity;
+        int offset = mappingOffset + 4 * capacity;
+        for (ClickDimension dimension : ClickDimension.values()) {
+            int width = dimension == ClickDimension.REFERRER ? 2 : 1;
+            dimensionOffsets[dimension.ordinal()] = offset;
+            dimensionWidths[dimension.ordinal()] = width;
+            dictionaries[dimension.ordinal()] = new StringDictionary(width == 2 ? 1 << 16 : 1 << 8);
+            offset += width * capacity;
+        }
+    }
+
+    // Creates and maps a new, empty active segment in the directory
+    static ClickSegment create(Path directory, long sequence, int capacity, long baseEpochSecond) throws IOException {
+        Path file = directory.resolve(name(sequence) + ACTIVE_SUFFIX);
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(HEADER_BYTES + (long) BYTES_PER_ROW * capacity);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, baseEpochSecond);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(ROW_COUNT_OFFSET, 0);
+        buffer.putInt(MIN_SECOND_OFFSET, Integer.MAX_VALUE);
+        buffer.putInt(MAX_SECOND_OFFSET, Integer.MIN_VALUE);
+
+        ClickSegment segment = new ClickSegment(sequence, file, directory.resolve(file.getFileName() + DICTIONARY_SUFFIX), buffer);
+        segment.dictionaryLog = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segment.dictionaryFile)));
+        return segment;
+    }
+
+    // Maps an existing segment file: read-only when sealed, writable (for recovery) when active
+    static ClickSegment open(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        boolean active = fileName.endsWith(ACTIVE_SUFFIX);
+        long sequence = Long.parseLong(fileName.substring(fileName.indexOf('-') + 1, fileName.indexOf('.')));
+        Path dictionaryFile = active
+                ? file.resolveSibling(fileName + DICTIONARY_SUFFIX)
+                : file.resolveSibling(name(sequence) + DICTIONARY_SUFFIX);
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = active
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(active ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ClickSegment segment = new ClickSegment(sequence, file, dictionaryFile, buffer);
+        segment.replayDictionaries();
+        if (active) {
+            segment.dictionaryLog = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(dictionaryFile, StandardOpenOption.APPEND)));
+        }
+        return segment;
+    }
+
+    boolean isFull() {
+        return rowCount == capacity;
+    }
+
+    // Appends one click; the caller must check isFull first and call commit after a batch
+    void append(long epochSecond, long urlMappingId, Long userId, String[] dimensionValues) throws IOException {
+        int row = rowCount;
+        int second = Math.toIntExact(epochSecond - baseEpochSecond);
+        buffer.putInt(HEADER_BYTES + 4 * row, second);
+        buffer.putInt(mappingOffset + 4 * row, mappings.encode(urlMappingId, userId == null ? 0 : userId));
+        for (ClickDimension dimension : ClickDimension.values()) {
+            int index = dimension.ordinal();
+            int code = dictionaries[index].encode(dimensionValues[index], index);
+            if (dimensionWidths[index] == 2) {
+                buffer.putShort(dimensionOffsets[index] + 2 * row, (short) code);
+            } else {
+                buffer.put(dimensionOffsets[index] + row, (byte) code);
+            }
+        }
+        if (second < minSecond) {
+            minSecond = second;
+        }
+        if (second > maxSecond) {
+            maxSecond = second;
+        }
+        rowCount = row + 1;
+    }
+
+    // Makes the appended rows durable across a restart: dictionary entries first, then the header that refers to them
+    void commit() throws IOException {
+        dictionaryLog.flush();
+        buffer.putInt(MIN_SECOND_OFFSET, minSecond);
+        buffer.putInt(MAX_SECOND_OFFSET, maxSecond);
+        buffer.putInt(ROW_COUNT_OFFSET, rowCount);
+    }
+
+    // Writes a compact, read-only copy of this active segment, removes the active files and returns the copy
+    ClickSegment seal() throws IOException {
+        commit();
+        dictionaryLog.close();
+        int rows = rowCount;
+        Path sealedFile = file.resolveSibling(name(sequence) + SEALED_SUFFIX);
+        Path partialFile = file.resolveSibling(name(sequence) + SEALED_SUFFIX + ".partial");
+
+        try (FileChannel channel = FileChannel.open(partialFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(baseEpochSecond)
+                    .putInt(rows).putInt(rows).putInt(minSecond).putInt(maxSecond).flip();
+            writeFully(channel, header);
+            writeFully(channel, column(HEADER_BYTES, 4 * rows));
+            writeFully(channel, column(mappingOffset, 4 * rows));
+            for (ClickDimension dimension : ClickDimension.values()) {
+                writeFully(channel, column(dimensionOffsets[dimension.ordinal()], dimensionWidths[dimension.ordinal()] * rows));
+            }
+            channel.force(true);
+        }
+        Path sealedDictionary = file.resolveSibling(name(sequence) + DICTIONARY_SUFFIX);
+        Files.move(dictionaryFile, sealedDictionary, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(partialFile, sealedFile, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(file);
+        return open(sealedFile);
+    }
+
+    // Deletes the files of a sealed segment
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dictionaryFile);
+    }
+
+    public long sequence() {
+        return sequence;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public long baseEpochSecond() {
+        return baseEpochSecond;
+    }
+
+    // Earliest and latest click as epoch seconds; only meaningful when rowCount() > 0
+    public long minEpochSecond() {
+        return baseEpochSecond + minSecond;
+    }
+
+    public long maxEpochSecond() {
+        return baseEpochSecond + maxSecond;
+    }
+
+    public long sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    public long epochSecond(int row) {
+        return baseEpochSecond + buffer.getInt(HEADER_BYTES + 4 * row);
+    }
+
+    public int mappingCode(int row) {
+        return buffer.getInt(mappingOffset + 4 * row);
+    }
+
+    public int code(ClickDimension dimension, int row) {
+        int index = dimension.ordinal();
+        return dimensionWidths[index] == 2
+                ? buffer.getShort(dimensionOffsets[index] + 2 * row) & 0xFFFF
+                : buffer.get(dimensionOffsets[index] + row) & 0xFF;
+    }
+
+    // Number of distinct mappings; read after rowCount() so it covers every code of those rows
+    public int mappingCount() {
+        return mappings.size();
+    }
+
+    public long mappingId(int mappingCode) {
+        return mappings.ids()[mappingCode];
+    }
+
+    public long userId(int mappingCode) {
+        return mappings.userIds()[mappingCode];
+    }
+
+    public int dictionarySize(ClickDimension dimension) {
+        return dictionaries[dimension.ordinal()].size();
+    }
+
+    public String value(ClickDimension dimension, int code) {
+        return dictionaries[dimension.ordinal()].values()[code];
+    }
+
+    /**
+     * Marks the mapping codes whose mapping id is in the given set (or whose user id matches, if userId is not null).
+     * Returns null if no mapping of this segment matches, so the segment can be skipped.
+     */
+    public boolean[] selectMappings(Collection<Long> urlMappingIds, Long userId) {
+        int count = mappings.size();
+        long[] ids = mappings.ids();
+        long[] userIds = mappings.userIds();
+        boolean[] selected = new boolean[count];
+        boolean any = false;
+        for (int code = 0; code < count; code++) {
+            if ((urlMappingIds == null || urlMappingIds.contains(ids[code])) && (userId == null || userId == userIds[code])) {
+                selected[code] = true;
+                any = true;
+            }
+        }
+        return any ? selected : null;
+    }
+
+    private ByteBuffer column(int offset, int length) {
+        ByteBuffer column = buffer.duplicate();
+        column.position(offset).limit(offset + length);
+        return column;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private void replayDictionaries() throws IOException {
+        if (!Files.exists(dictionaryFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dictionaryFile)))) {
+            while (true) {
+                int kind = in.readUnsignedByte();
+                if (kind == MAPPING_RECORD) {
+                    mappings.add(in.readLong(), in.readLong());
+                } else {
+                    dictionaries[kind].add(in.readUTF());
+                }
+            }
+        } catch (EOFException endOfLog) {
+            // End of the log; a record cut short by a crash is dropped with it
+        }
+    }
+
+    static String name(long sequence) {
+        return String.format("segment-%012d", sequence);
+    }
+
+    // Mapping id and owner per mapping code; arrays are republished through volatile fields when they grow
+    private final class MappingDictionary {
+        private final Map<Long, Integer> codes = new HashMap<>();
+        private volatile long[] ids = new long[64];
+        private volatile long[] userIds = new long[64];
+        private volatile int size;
+
+        int encode(long urlMappingId, long userId) throws IOException {
+            Integer code = codes.get(urlMappingId);
+            if (code != null) {
+                return code;
+            }
+            dictionaryLog.writeByte(MAPPING_RECORD);
+            dictionaryLog.writeLong(urlMappingId);
+            dictionaryLog.writeLong(userId);
+            return add(urlMappingId, userId);
+        }
+
+        int add(long urlMappingId, long userId) {
+            int code = size;
+            if (code == ids.length) {
+                ids = Arrays.copyOf(ids, code * 2);
+                userIds = Arrays.copyOf(userIds, code * 2);
+            }
+            ids[code] = urlMappingId;
+            userIds[code] = userId;
+            codes.put(urlMappingId, code);
+            size = code + 1;
+            return code;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long[] ids() {
+            return ids;
+        }
+
+        long[] userIds() {
+            return userIds;
+        }
+    }
+
+    // Values of one dimension per code; code 0 is OTHER, which also absorbs values once the dictionary is full
+    private final class StringDictionary {
+        private final int maxCodes;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private volatile String[] values = new String[16];
+        private volatile int size;
+
+        StringDictionary(int maxCodes) {
+            this.maxCodes = maxCodes;
+            add(OTHER);
+        }
+
+        int encode(String value, int dimension) throws IOException {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (size == maxCodes) {
+                return 0;
+            }
+            dictionaryLog.writeByte(dimension);
+            dictionaryLog.writeUTF(value);
+            return add(value);
+        }
+
+        int add(String value) {
+            int code = size;
+            if (code == values.length) {
+                values = Arrays.copyOf(values, code * 2);
+            }
+            values[code] = value;
+            codes.put(value, code);
+            size = code + 1;
+            return code;
+        }
+
+        int size() {
+            return size;
+        }
+
+        String[] values() {
+            return values;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.iaschowrai.urlshortner.service.clicklog;
+
+import com.iaschowrai.urlshortner.service.clickservice.ClickBatchListener;
+import com.iaschowrai.urlshortner.service.clickservice.ClickRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+The `ClickSegmentLog` keeps enriched clicks (referrer host, country, browser, device) in `ClickSegment` files on local
+disk, next to the `click_events` rows. It is a `ClickBatchListener`, so enrichment and appends happen on the background
+click writer after the JDBC batch, never on the request thread, and cost about 13 bytes per click. It is ordered last
+and never throws, so a disk problem cannot roll back the database batch.
+
+The active segment is rolled when it reaches `url.clicks.segments.rows-per-segment` rows or is older than
+`url.clicks.segments.roll-interval-minutes`. On startup sealed segments are mapped again and a leftover active segment
+is sealed with the rows it had committed. Segments whose newest click is older than
+`url.clicks.segments.retention-days` are deleted (0 keeps them).
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ClickSegmentLog implements ClickBatchListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickSegmentLog.class);
+
+    private final ClickEnricher clickEnricher;
+    private final boolean enabled;
+    private final Path directory;
+    private final int rowsPerSegment;
+    private final Duration rollInterval;
+    private final int retentionDays;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile List<ClickSegment> sealed = List.of();
+    private volatile ClickSegment active;
+    private long activeSince;
+    private long nextSequence = 1;
+
+    private final Counter appendedCounter;
+    private final Counter failedCounter;
+
+    public ClickSegmentLog(ClickEnricher clickEnricher,
+                           MeterRegistry meterRegistry,
+                           @Value("${url.clicks.segments.enabled:true}") boolean enabled,
+                           @Value("${url.clicks.segments.directory:data/click-segments}") String directory,
+                           @Value("${url.clicks.segments.rows-per-segment:1048576}") int rowsPerSegment,
+                           @Value("${url.clicks.segments.roll-interval-minutes:60}") long rollIntervalMinutes,
+                           @Value("${url.clicks.segments.retention-days:0}") int retentionDays) {
+        this.clickEnricher = clickEnricher;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.rowsPerSegment = rowsPerSegment;
+        this.rollInterval = Duration.ofMinutes(rollIntervalMinutes);
+        this.retentionDays = retentionDays;
+
+        Gauge.builder("url.clicks.segments.count", this, log -> log.segments().size())
+                .description("Click log segments on disk, including the active one")
+                .register(meterRegistry);
+        Gauge.builder("url.clicks.segments.size", this, log -> log.segments().stream().mapToLong(ClickSegment::sizeInBytes).sum())
+                .description("Mapped size of the click log segments")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.appendedCounter = meterRegistry.counter("url.clicks.segments.appended");
+        this.failedCounter = meterRegistry.counter("url.clicks.segments.failed");
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<ClickSegment> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*{" + ClickSegment.SEALED_SUFFIX + "," + ClickSegment.ACTIVE_SUFFIX + "}")) {
+            for (Path file : files) {
+                ClickSegment segment = ClickSegment.open(file);
+                if (file.getFileName().toString().endsWith(ClickSegment.ACTIVE_SUFFIX)) {
+                    logger.info("Recovering {} committed clicks from {}.", segment.rowCount(), file);
+                    segment = segment.seal();
+                }
+                segments.add(segment);
+                nextSequence = Math.max(nextSequence, segment.sequence() + 1);
+            }
+        }
+        segments.sort(Comparator.comparingLong(ClickSegment::sequence));
+        sealed = List.copyOf(segments);
+        logger.info("Opened click segment log in {} with {} segments.", directory, segments.size());
+    }
+
+    @Override
+    public void onClickBatch(List<ClickRecord> batch) {
+        if (!enabled) {
+            return;
+        }
+        String[] dimensionValues = new String[ClickDimension.values().length];
+        lock.lock();
+        try {
+            for (ClickRecord clickRecord : batch) {
+                dimensionValues[ClickDimension.REFERRER.ordinal()] = clickEnricher.referrerHost(clickRecord.getReferrer());
+                dimensionValues[ClickDimension.COUNTRY.ordinal()] = clickEnricher.country(clickRecord.getRemoteAddress());
+                dimensionValues[ClickDimension.BROWSER.ordinal()] = clickEnricher.browser(clickRecord.getUserAgent());
+                dimensionValues[ClickDimension.DEVICE.ordinal()] = clickEnricher.device(clickRecord.getUserAgent());
+                long epochSecond = clickRecord.getClickDate().toEpochSecond(ZoneOffset.UTC);
+
+                if (active != null && active.isFull()) {
+                    roll();
+                }
+                if (active == null) {
+                    active = ClickSegment.create(directory, nextSequence++, rowsPerSegment, epochSecond);
+                    activeSince = System.currentTimeMillis();
+                }
+                active.append(epochSecond, clickRecord.getUrlMappingId(), clickRecord.getUserId(), dimensionValues);
+            }
+            active.commit();
+            appendedCounter.increment(batch.size());
+        } catch (IOException | RuntimeException e) {
+            failedCounter.increment(batch.size());
+            logger.error("Failed to append {} clicks to the segment log: {}", batch.size(), e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Seals the active segment once it is older than the roll interval and applies retention
+    @Scheduled(fixedDelayString = "${url.clicks.segments.roll-check-interval-ms:60000}")
+    public void rollIfDue() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (active != null && System.currentTimeMillis() - activeSince >= rollInterval.toMillis()) {
+                roll();
+            }
+            if (retentionDays > 0) {
+                deleteExpired(LocalDateTime.now().minusDays(retentionDays).toEpochSecond(ZoneOffset.UTC));
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to roll the click segment log: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (active != null) {
+                roll();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to seal the active click segment on shutdown: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // All segments, oldest first; the last one may still be growing
+    public List<ClickSegment> segments() {
+        List<ClickSegment> segments = new ArrayList<>(sealed);
+        ClickSegment current = active;
+        if (current != null) {
+            segments.add(current);
+        }
+        return segments;
+    }
+
+    /**
+     * Clicks between start and end (inclusive) grouped by one dimension, largest first.
+     * Restricted to the given mappings, or to all of a user's mappings when urlMappingIds is null.
+     */
+    public Map<String, Long> countBy(ClickDimension dimension, Collection<Long> urlMappingIds, Long userId,
+                                     LocalDateTime start, LocalDateTime end) {
+        long from = start.toEpochSecond(ZoneOffset.UTC);
+        long to = end.toEpochSecond(ZoneOffset.UTC);
+        Map<String, Long> counts = new HashMap<>();
+
+        for (ClickSegment segment : segments()) {
+            int rows = segment.rowCount();
+            if (rows == 0 || segment.maxEpochSecond() < from || segment.minEpochSecond() > to) {
+                continue;
+            }
+            boolean[] selected = segment.selectMappings(urlMappingIds, userId);
+            if (selected == null) {
+                continue;
+            }
+            long[] perCode = new long[segment.dictionarySize(dimension)];
+            for (int row = 0; row < rows; row++) {
+                long second = segment.epochSecond(row);
+                if (second >= from && second <= to && selected[segment.mappingCode(row)]) {
+                    perCode[segment.code(dimension, row)]++;
+                }
+            }
+            for (int code = 0; code < perCode.length; code++) {
+                if (perCode[code] > 0) {
+                    counts.merge(segment.value(dimension, code), perCode[code], Long::sum);
+                }
+            }
+        }
+
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    private void roll() throws IOException {
+        ClickSegment rolled = active;
+        active = null;
+        if (rolled.rowCount() == 0) {
+            rolled.seal().delete();
+            return;
+        }
+        List<ClickSegment> segments = new ArrayList<>(sealed);
+        segments.add(rolled.seal());
+        sealed = List.copyOf(segments);
+    }
+
+    private void deleteExpired(long oldestKeptEpochSecond) throws IOException {
+        List<ClickSegment> kept = new ArrayList<>();
+        for (ClickSegment segment : sealed) {
+            if (segment.maxEpochSecond() < oldestKeptEpochSecond) {
+                segment.delete();
+                logger.info("Deleted click segment {} (retention {} days).", segment.sequence(), retentionDays);
+            } else {
+                kept.add(segment);
+            }
+        }
+        sealed = List.copyOf(kept);
+    }
+}
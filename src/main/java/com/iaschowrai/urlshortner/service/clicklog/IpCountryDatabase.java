@@ -0,0 +1,129 @@
+package com.iaschowrai.urlshortner.service.clicklog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+The `IpCountryDatabase` maps IPv4 addresses to ISO country codes from a local CSV file of ranges, one
+`start,end,country` line per range, with addresses in dotted or integer form (the format of the common free IP-to-country
+lists). Ranges are held in sorted primitive arrays and looked up by binary search. Addresses are parsed by hand, never
+resolved. Without a file, or for IPv6 and unparseable addresses, the country is `UNKNOWN`.
+ */
+@Component
+public class IpCountryDatabase {
+
+    public static final String UNKNOWN = "--";
+
+    private static final Logger logger = LoggerFactory.getLogger(IpCountryDatabase.class);
+
+    private final long[] rangeStarts;
+    private final long[] rangeEnds;
+    private final String[] countries;
+
+    public IpCountryDatabase(@Value("${url.clicks.geo.database:}") String databaseFile) {
+        List<Range> ranges = load(databaseFile);
+        ranges.sort(Comparator.comparingLong(Range::start));
+        rangeStarts = new long[ranges.size()];
+        rangeEnds = new long[ranges.size()];
+        countries = new String[ranges.size()];
+        for (int i = 0; i < ranges.size(); i++) {
+            rangeStarts[i] = ranges.get(i).start();
+            rangeEnds[i] = ranges.get(i).end();
+            countries[i] = ranges.get(i).country();
+        }
+    }
+
+    public String lookup(String address) {
+        long ip = parseIpv4(address);
+        if (ip < 0) {
+            return UNKNOWN;
+        }
+        int index = Arrays.binarySearch(rangeStarts, ip);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index >= 0 && ip <= rangeEnds[index] ? countries[index] : UNKNOWN;
+    }
+
+    // Malformed lines are skipped
+    private static List<Range> load(String databaseFile) {
+        List<Range> ranges = new ArrayList<>();
+        if (databaseFile == null || databaseFile.isBlank()) {
+            return ranges;
+        }
+        Path path = Paths.get(databaseFile);
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.replace("\"", "").split(",");
+                if (fields.length < 3) {
+                    continue;
+                }
+                long start = parseAddressOrNumber(fields[0].trim());
+                long end = parseAddressOrNumber(fields[1].trim());
+                String country = fields[2].trim().toUpperCase();
+                if (start >= 0 && end >= start && country.length() == 2) {
+                    ranges.add(new Range(start, end, country.intern()));
+                }
+            }
+            logger.info("Loaded {} IP ranges from {}.", ranges.size(), path);
+        } catch (IOException e) {
+            logger.error("Failed to load the IP country database {}: {}", path, e.getMessage());
+        }
+        return ranges;
+    }
+
+    private static long parseAddressOrNumber(String value) {
+        if (value.indexOf('.') >= 0) {
+            return parseIpv4(value);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Dotted IPv4 (or IPv4-mapped IPv6) to an unsigned 32-bit value, or -1
+    static long parseIpv4(String address) {
+        if (address == null) {
+            return -1;
+        }
+        int start = address.startsWith("::ffff:") ? 7 : 0;
+        long ip = 0;
+        int octets = 0;
+        int octet = -1;
+        for (int i = start; i <= address.length(); i++) {
+            char c = i < address.length() ? address.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && octets < 4) {
+                ip = (ip << 8) | octet;
+                octets++;
+                octet = -1;
+            } else {
+                return -1;
+            }
+        }
+        return octets == 4 ? ip : -1;
+    }
+
+    private record Range(long start, long end, String country) {
+    }
+}
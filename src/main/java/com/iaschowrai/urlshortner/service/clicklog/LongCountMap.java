@@ -0,0 +1,81 @@
+package com.iaschowrai.urlshortner.service.clicklog;
+
+// Open-addressing long -> count map for the query engine's packed group keys; no boxing per click
+final class LongCountMap {
+
+    // Slots hold key + 1 so that 0 can mark an empty slot; group keys never use the top bits
+    private long[] keys;
+    private long[] counts;
+    private int size;
+
+    LongCountMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        keys = new long[capacity];
+        counts = new long[capacity];
+    }
+
+    void increment(long key) {
+        add(key, 1);
+    }
+
+    void add(long key, long count) {
+        long stored = key + 1;
+        int mask = keys.length - 1;
+        int slot = slot(stored) & mask;
+        while (keys[slot] != 0 && keys[slot] != stored) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == stored) {
+            counts[slot] += count;
+            return;
+        }
+        keys[slot] = stored;
+        counts[slot] = count;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    void addAll(LongCountMap other) {
+        other.forEach(this::add);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                consumer.accept(keys[slot] - 1, counts[slot]);
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int slot(long stored) {
+        return (int) ((stored * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(long key, long count);
+    }
+}
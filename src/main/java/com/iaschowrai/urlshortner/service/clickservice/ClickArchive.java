@@ -0,0 +1,143 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+The `ClickArchive` is the compacted file format for click events of one month that have been dropped from
+`click_events`. Rows are written sorted by (url_mapping_id, click_date) and each one is stored as two varints: the
+mapping id delta (plus one, so that 0 can end the stream) and the seconds since the previous click of the same mapping,
+or since the start of the month for the first one. A hot link therefore costs a couple of bytes per click before gzip.
+Timestamps are kept to the second.
+
+Layout (gzip): magic "CLKA", version byte, year (int), month (byte), rows, 0, row count (varint).
+ */
+public final class ClickArchive {
+
+    private static final int MAGIC = 0x434C4B41;
+    private static final int VERSION = 1;
+
+    private ClickArchive() {
+    }
+
+    public static Writer create(Path file, YearMonth month) throws IOException {
+        return new Writer(Files.newOutputStream(file), month);
+    }
+
+    /**
+     * Reads an archive, passing every (urlMappingId, clickDate) to the consumer in file order.
+     * Returns the month the archive covers.
+     */
+    public static YearMonth read(Path file, BiConsumer<Long, LocalDateTime> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not a click archive: " + file);
+            }
+            YearMonth month = YearMonth.of(in.readInt(), in.readByte());
+            LocalDateTime monthStart = month.atDay(1).atStartOfDay();
+
+            long urlMappingId = 0;
+            long seconds = 0;
+            long rows = 0;
+            long mappingDelta;
+            while ((mappingDelta = readVarLong(in)) != 0) {
+                if (mappingDelta > 1) {
+                    urlMappingId += mappingDelta - 1;
+                    seconds = 0;
+                }
+                seconds += readVarLong(in);
+                consumer.accept(urlMappingId, monthStart.plusSeconds(seconds));
+                rows++;
+            }
+            if (readVarLong(in) != rows) {
+                throw new IOException("Truncated click archive: " + file);
+            }
+            return month;
+        }
+    }
+
+    public static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+        private final LocalDateTime monthStart;
+        private long urlMappingId;
+        private long seconds;
+        private long rows;
+
+        private Writer(OutputStream file, YearMonth month) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(file, 64 * 1024)));
+            this.monthStart = month.atDay(1).atStartOfDay();
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(month.getYear());
+            out.writeByte(month.getMonthValue());
+        }
+
+        // Rows must arrive sorted by urlMappingId, then clickDate
+        public void append(long urlMappingId, LocalDateTime clickDate) throws IOException {
+            long clickSeconds = ChronoUnit.SECONDS.between(monthStart, clickDate);
+            if (urlMappingId < this.urlMappingId || (urlMappingId == this.urlMappingId && clickSeconds < seconds)) {
+                throw new IllegalArgumentException("Click archive rows must be sorted by mapping id and click date.");
+            }
+            if (urlMappingId != this.urlMappingId) {
+                writeVarLong(out, urlMappingId - this.urlMappingId + 1);
+                this.urlMappingId = urlMappingId;
+                seconds = 0;
+            } else {
+                writeVarLong(out, 1);
+            }
+            writeVarLong(out, clickSeconds - seconds);
+            seconds = clickSeconds;
+            rows++;
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writeVarLong(out, 0);
+            writeVarLong(out, rows);
+            out.close();
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Unexpected end of click archive.");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in click archive.");
+    }
+}
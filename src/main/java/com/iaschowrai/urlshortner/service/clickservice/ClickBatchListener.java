@@ -0,0 +1,12 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+import java.util.List;
+
+/*
+Callback for components that derive data from clicks. The `ClickEventRecorder` invokes every listener with each batch
+it writes, inside the same transaction as the `click_events` INSERT, so derived tables never drift from the raw events.
+ */
+public interface ClickBatchListener {
+
+    void onClickBatch(List<ClickRecord> batch);
+}
@@ -0,0 +1,182 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+import com.iaschowrai.urlshortner.repository.UrlMappingShards;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+The `ClickCounter` keeps per-mapping click deltas in memory as striped `LongAdder`s, so counting a click is a lock-free
+increment instead of a read-modify-write of `UrlMapping.clickCount`. A scheduled flusher applies all pending deltas as
+one batch of `UPDATE url_mappings SET click_count = click_count + ?`.
+
+On every flush the active map is swapped for a fresh one. The swapped-out generation is drained immediately and kept as
+`retired` for one more round, so an increment that raced with the swap is picked up by the next flush rather than lost.
+An increment that was held up across two flushes finds its map neither active nor retired and moves its delta over.
+Deltas that are being written are kept in `inFlight` until the UPDATE commits, so `getPendingDelta` plus the persisted
+value stays accurate while a flush is running.
+
+With sharded `url_mappings` the ids carry no shard, so each delta is tried on the databases in turn until one has the
+row. A row that the `UrlMappingRebalancer` is moving can be on neither while the move commits: the source is locked and
+then empty, the copy not yet visible. While a rebalance runs, deltas that matched nothing therefore get a second pass.
+ */
+@Component
+public class ClickCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickCounter.class);
+
+    private static final String INCREMENT_CLICK_COUNT =
+            "UPDATE url_mappings SET click_count = click_count + ? WHERE id = ?";
+
+    private final UrlMappingShards urlMappingShards;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Timer flushTimer;
+
+    private volatile ConcurrentHashMap<Long, LongAdder> active = new ConcurrentHashMap<>();
+    private volatile ConcurrentHashMap<Long, LongAdder> retired = new ConcurrentHashMap<>();
+    private volatile Map<Long, Long> inFlight = Collections.emptyMap();
+
+    public ClickCounter(UrlMappingShards urlMappingShards, MeterRegistry meterRegistry) {
+        this.urlMappingShards = urlMappingShards;
+        Gauge.builder("url.clicks.counter.pending", this, counter -> counter.active.size())
+                .description("Mappings with click deltas not yet flushed")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("url.clicks.counter.flush")
+                .description("Time to apply one round of click count deltas")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public void increment(Long urlMappingId) {
+        add(urlMappingId, 1);
+    }
+
+    // Drops the deltas of a deleted mapping; a delta already being written matches no row
+    public void discard(Long urlMappingId) {
+        active.remove(urlMappingId);
+        retired.remove(urlMappingId);
+    }
+
+    // Clicks counted in memory but not yet applied to url_mappings.click_count
+    public long getPendingDelta(Long urlMappingId) {
+        long delta = inFlight.getOrDefault(urlMappingId, 0L);
+        LongAdder adder = active.get(urlMappingId);
+        if (adder != null) {
+            delta += adder.sum();
+        }
+        adder = retired.get(urlMappingId);
+        if (adder != null) {
+            delta += adder.sum();
+        }
+        return delta;
+    }
+
+    @Scheduled(fixedDelayString = "${url.clicks.counter-flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            ConcurrentHashMap<Long, LongAdder> previous = retired;
+            ConcurrentHashMap<Long, LongAdder> drained = active;
+            active = new ConcurrentHashMap<>();
+            // Before the last drain of `previous`, so add() sees it is gone if its increment may be missed
+            retired = drained;
+
+            Map<Long, Long> deltas = new HashMap<>();
+            collect(previous, deltas);
+            collect(drained, deltas);
+            if (deltas.isEmpty()) {
+                return;
+            }
+
+            inFlight = deltas;
+            Map<Long, Long> unmatched = new HashMap<>(deltas);
+            Timer.Sample sample = Timer.start();
+            try {
+                apply(unmatched);
+            } catch (RuntimeException e) {
+                logger.error("Failed to flush click counts for {} mappings, retrying on next flush.", unmatched.size(), e);
+                unmatched.forEach(this::add);
+            } finally {
+                sample.stop(flushTimer);
+                inFlight = Collections.emptyMap();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Two rounds: the second one picks up increments that raced with the first swap
+        flush();
+        flush();
+    }
+
+    // Removes every delta that was applied; what is left matched no row (deleted mappings) or was not attempted
+    private void apply(Map<Long, Long> unmatched) {
+        int passes = urlMappingShards.isRebalancing() ? 2 : 1;
+        for (int pass = 0; pass < passes; pass++) {
+            for (UrlMappingShards.Shard database : urlMappingShards.databases()) {
+                if (unmatched.isEmpty()) {
+                    return;
+                }
+                List<Map.Entry<Long, Long>> entries = new ArrayList<>(unmatched.entrySet());
+                int[][] updateCounts = database.jdbcTemplate().batchUpdate(INCREMENT_CLICK_COUNT, entries, entries.size(),
+                        (ps, entry) -> {
+                            ps.setLong(1, entry.getValue());
+                            ps.setLong(2, entry.getKey());
+                        });
+                int row = 0;
+                for (int[] batch : updateCounts) {
+                    for (int updated : batch) {
+                        // SUCCESS_NO_INFO counts as applied
+                        if (updated != 0) {
+                            unmatched.remove(entries.get(row).getKey());
+                        }
+                        row++;
+                    }
+                }
+            }
+        }
+    }
+
+    private void add(Long urlMappingId, long delta) {
+        while (delta > 0) {
+            ConcurrentHashMap<Long, LongAdder> counters = active;
+            LongAdder adder = counters.get(urlMappingId);
+            if (adder == null) {
+                adder = counters.computeIfAbsent(urlMappingId, id -> new LongAdder());
+            }
+            adder.add(delta);
+            if (counters == active || counters == retired) {
+                return;
+            }
+            // The map was retired twice meanwhile; take back whatever its last drain missed (sumThenReset is atomic per
+            // cell, so a concurrent drain and this one never count the same click)
+            delta = adder.sumThenReset();
+        }
+    }
+
+    private static void collect(Map<Long, LongAdder> counters, Map<Long, Long> deltas) {
+        counters.forEach((id, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta > 0) {
+                deltas.merge(id, delta, Long::sum);
+            }
+        });
+    }
+}
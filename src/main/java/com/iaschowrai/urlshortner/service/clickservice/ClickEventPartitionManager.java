@@ -0,0 +1,246 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+The `ClickEventPartitionManager` keeps `click_events` range-partitioned by month on MySQL. Partition `pYYYYMM` holds the
+clicks of that month and `pmax` catches anything beyond the last monthly partition.
+
+On the first run an unpartitioned table is converted in place: the foreign key is dropped (partitioned InnoDB tables
+cannot have one), the primary key becomes (id, click_date) because every unique key must contain the partitioning
+column, and one partition is created per month from the oldest click on. That ALTER copies the table once. After that
+the daily job only splits `pmax` to keep `url.clicks.partitioning.months-ahead` empty partitions ready, and drops the
+partitions older than `url.clicks.retention-months`. Dropping a partition is a metadata operation, no matter how many
+rows it holds. With `url.clicks.archive.enabled` each partition is first exported to a `ClickArchive` file.
+
+Every node runs the job, but only one at a time does the work: it is done while holding the MySQL named lock
+`urlshortner.click_events_partitioning`, and a node that finds it taken skips that run. The lock belongs to the session
+of the connection that took it, so it is also released if that node dies.
+
+Rollup tables are not partitioned and keep their history, so analytics from rollups still cover expired months.
+ */
+@Component
+@ConditionalOnProperty(name = "url.clicks.partitioning.enabled", havingValue = "true")
+public class ClickEventPartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickEventPartitionManager.class);
+
+    private static final String TABLE = "click_events";
+    private static final String MAINTENANCE_LOCK = "urlshortner.click_events_partitioning";
+    private static final String CATCH_ALL_PARTITION = "pmax";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final DateTimeFormatter PARTITION_BOUND = DateTimeFormatter.ofPattern("yyyy-MM-'01'");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int retentionMonths;
+    private final int monthsAhead;
+    private final boolean archiveEnabled;
+    private final Path archiveDirectory;
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+
+    public ClickEventPartitionManager(JdbcTemplate jdbcTemplate,
+                                      @Value("${url.clicks.retention-months:0}") int retentionMonths,
+                                      @Value("${url.clicks.partitioning.months-ahead:3}") int monthsAhead,
+                                      @Value("${url.clicks.archive.enabled:false}") boolean archiveEnabled,
+                                      @Value("${url.clicks.archive.directory:archive}") String archiveDirectory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retentionMonths = retentionMonths;
+        this.monthsAhead = monthsAhead;
+        this.archiveEnabled = archiveEnabled;
+        this.archiveDirectory = Paths.get(archiveDirectory);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainOnStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${url.clicks.partitioning.cron:0 30 3 * * *}")
+    public void maintain() {
+        if (!maintenanceLock.tryLock()) {
+            return;
+        }
+        try {
+            // The named lock is held by this connection's session while the DDL below runs on other connections
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                if (!acquire(connection)) {
+                    logger.info("Skipping {} partition maintenance, another node is running it.", TABLE);
+                    return null;
+                }
+                try {
+                    maintainPartitions();
+                } finally {
+                    release(connection);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            logger.error("Click event partition maintenance failed: {}", e.getMessage(), e);
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    private void maintainPartitions() {
+        YearMonth now = YearMonth.now();
+        List<YearMonth> partitions = monthlyPartitions();
+        if (partitions == null) {
+            convertToPartitioned(now);
+            partitions = monthlyPartitions();
+        }
+        addPartitionsAhead(partitions, now.plusMonths(monthsAhead));
+        if (retentionMonths > 0) {
+            dropExpiredPartitions(partitions, now.minusMonths(retentionMonths));
+        }
+    }
+
+    // GET_LOCK with a zero timeout: 1 if acquired, 0 if held by another session
+    private static boolean acquire(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            statement.setString(1, MAINTENANCE_LOCK);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void release(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, MAINTENANCE_LOCK);
+            statement.executeQuery().close();
+        }
+    }
+
+    // Monthly partitions in order, or null if the table is not partitioned
+    private List<YearMonth> monthlyPartitions() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL " +
+                "ORDER BY PARTITION_ORDINAL_POSITION", String.class, TABLE);
+        if (names.isEmpty()) {
+            return null;
+        }
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : names) {
+            if (!CATCH_ALL_PARTITION.equals(name)) {
+                months.add(YearMonth.parse(name, PARTITION_NAME));
+            }
+        }
+        return months;
+    }
+
+    private void convertToPartitioned(YearMonth now) {
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(click_date) FROM " + TABLE, Timestamp.class);
+        YearMonth first = oldest == null ? now : YearMonth.from(oldest.toLocalDateTime());
+        logger.info("Partitioning {} by month from {}; this rebuilds the table once.", TABLE, first);
+
+        for (String foreignKey : jdbcTemplate.queryForList(
+                "SELECT CONSTRAINT_NAME FROM information_schema.REFERENTIAL_CONSTRAINTS " +
+                "WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = ?", String.class, TABLE)) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP FOREIGN KEY `" + foreignKey + "`");
+        }
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, click_date)");
+
+        StringJoiner definitions = new StringJoiner(", ", "(", ")");
+        for (YearMonth month = first; !month.isAfter(now.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            definitions.add(partitionDefinition(month));
+        }
+        definitions.add("PARTITION " + CATCH_ALL_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " PARTITION BY RANGE COLUMNS(click_date) " + definitions);
+    }
+
+    // Splits the empty catch-all partition so the coming months each have their own
+    private void addPartitionsAhead(List<YearMonth> partitions, YearMonth last) {
+        YearMonth next = partitions.isEmpty() ? YearMonth.now() : partitions.get(partitions.size() - 1).plusMonths(1);
+        if (next.isAfter(last)) {
+            return;
+        }
+        StringJoiner definitions = new StringJoiner(", ", "(", ")");
+        for (YearMonth month = next; !month.isAfter(last); month = month.plusMonths(1)) {
+            definitions.add(partitionDefinition(month));
+        }
+        definitions.add("PARTITION " + CATCH_ALL_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + CATCH_ALL_PARTITION + " INTO " + definitions);
+        logger.info("Added {} partitions through {}.", TABLE, last);
+    }
+
+    private void dropExpiredPartitions(List<YearMonth> partitions, YearMonth oldestKept) {
+        for (YearMonth month : partitions) {
+            if (!month.isBefore(oldestKept)) {
+                break;
+            }
+            String partition = month.format(PARTITION_NAME);
+            if (archiveEnabled) {
+                archive(month, partition);
+            }
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + partition);
+            logger.info("Dropped {} partition {} (retention {} months).", TABLE, partition, retentionMonths);
+        }
+    }
+
+    // Exports one partition to a ClickArchive; the file is only moved into place once it is complete
+    private void archive(YearMonth month, String partition) {
+        Path target = archiveDirectory.resolve("click_events-" + month + ".clka.gz");
+        Path partial = archiveDirectory.resolve(target.getFileName() + ".partial");
+        try {
+            Files.createDirectories(archiveDirectory);
+            try (ClickArchive.Writer writer = ClickArchive.create(partial, month)) {
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            "SELECT url_mapping_id, click_date FROM " + TABLE + " PARTITION (" + partition + ") " +
+                            "ORDER BY url_mapping_id, click_date",
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(Integer.MIN_VALUE);
+                    return statement;
+                }, (ResultSet resultSet) -> {
+                    try {
+                        writer.append(resultSet.getLong(1), resultSet.getTimestamp(2).toLocalDateTime());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                logger.info("Archived {} click events of {} to {}.", writer.rows(), month, target);
+            }
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | UncheckedIOException e) {
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException ignored) {
+                // The partial file is overwritten on the next attempt
+            }
+            throw new IllegalStateException("Failed to archive partition " + partition + ", not dropping it.", e);
+        }
+    }
+
+    private static String partitionDefinition(YearMonth month) {
+        return "PARTITION " + month.format(PARTITION_NAME) +
+                " VALUES LESS THAN ('" + month.plusMonths(1).format(PARTITION_BOUND) + "')";
+    }
+}
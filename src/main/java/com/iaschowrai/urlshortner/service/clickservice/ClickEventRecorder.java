@@ -0,0 +1,146 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+The `ClickEventRecorder` takes click recording off the redirect path. `record` only offers a `ClickRecord` to a bounded
+in-memory queue; a scheduled writer drains the queue every `url.clicks.flush-interval-ms` and persists it with JDBC
+batch INSERTs into `click_events`, in chunks of `url.clicks.batch-size`, and hands each chunk to the registered
+`ClickBatchListener`s in the same transaction. Click counts are kept separately by the
+`ClickCounter`, so they stay exact even when events are dropped. Clicks on mappings deleted since they were queued are
+discarded (see `DeletedUrlMappings`).
+When the queue is full the configured `ClickOverflowPolicy` decides between dropping the click and writing it inline.
+ */
+@Component
+public class ClickEventRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickEventRecorder.class);
+
+    private static final String INSERT_CLICK_EVENT =
+            "INSERT INTO click_events (click_date, url_mapping_id) VALUES (?, ?)";
+
+    private final BlockingQueue<ClickRecord> queue;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final ClickOverflowPolicy overflowPolicy;
+    private final List<ClickBatchListener> batchListeners;
+    private final DeletedUrlMappings deletedUrlMappings;
+
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final Timer writeTimer;
+
+    public ClickEventRecorder(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              List<ClickBatchListener> batchListeners,
+                              DeletedUrlMappings deletedUrlMappings,
+                              @Value("${url.clicks.queue-capacity:100000}") int queueCapacity,
+                              @Value("${url.clicks.batch-size:500}") int batchSize,
+                              @Value("${url.clicks.overflow-policy:DROP}") ClickOverflowPolicy overflowPolicy) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.batchListeners = batchListeners;
+        this.deletedUrlMappings = deletedUrlMappings;
+
+        Gauge.builder("url.clicks.queue.size", queue, BlockingQueue::size)
+                .description("Clicks waiting to be written")
+                .register(meterRegistry);
+        this.writtenCounter = meterRegistry.counter("url.clicks.written");
+        this.droppedCounter = meterRegistry.counter("url.clicks.dropped");
+        this.failedCounter = meterRegistry.counter("url.clicks.failed");
+        this.writeTimer = Timer.builder("url.clicks.write")
+                .description("Time to write one batch of click events and its rollups")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues a click for persistence.
+     * Returns false if the click was dropped because the queue is full.
+     */
+    public boolean record(ClickRecord clickRecord) {
+        if (queue.offer(clickRecord)) {
+            return true;
+        }
+        if (overflowPolicy == ClickOverflowPolicy.CALLER_RUNS) {
+            writeBatch(List.of(clickRecord));
+            return true;
+        }
+        droppedCounter.increment();
+        return false;
+    }
+
+    /**
+     * Drains the queue in batches of at most batchSize.
+     * Runs on the scheduler every flush interval and once more on shutdown.
+     */
+    @Scheduled(fixedDelayString = "${url.clicks.flush-interval-ms:1000}")
+    public void flush() {
+        List<ClickRecord> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Flushing {} pending click events before shutdown.", queue.size());
+        flush();
+    }
+
+    private void writeBatch(List<ClickRecord> queued) {
+        List<ClickRecord> batch = queued.stream()
+                .filter(clickRecord -> !deletedUrlMappings.contains(clickRecord.getUrlMappingId()))
+                .toList();
+        if (batch.isEmpty()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_CLICK_EVENT, batch, batch.size(), (ps, clickRecord) -> {
+                    ps.setTimestamp(1, Timestamp.valueOf(clickRecord.getClickDate()));
+                    ps.setLong(2, clickRecord.getUrlMappingId());
+                });
+                for (ClickBatchListener listener : batchListeners) {
+                    listener.onClickBatch(batch);
+                }
+            });
+            writtenCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            failedCounter.increment(batch.size());
+            logger.error("Failed to write a batch of {} click events.", batch.size(), e);
+        } finally {
+            sample.stop(writeTimer);
+        }
+    }
+}
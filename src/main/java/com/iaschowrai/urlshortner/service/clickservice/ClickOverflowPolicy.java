@@ -0,0 +1,13 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+/*
+What the `ClickEventRecorder` does with a click when its queue is full.
+ */
+public enum ClickOverflowPolicy {
+
+    // Discard the click and count it in `url.clicks.dropped`; the redirect is never slowed down
+    DROP,
+
+    // Write the click synchronously on the request thread; nothing is lost but the redirect pays for the INSERT
+    CALLER_RUNS
+}
@@ -0,0 +1,56 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+import java.time.LocalDateTime;
+
+/*
+A `ClickRecord` is a single redirect captured on the request thread. It holds ids, a timestamp and the raw request
+headers needed for enrichment (referrer, user agent, client address) so that queueing it is cheap; parsing and lookups
+are left to the background writer. The request fields may be null.
+ */
+public final class ClickRecord {
+
+    private final Long urlMappingId;
+    private final Long userId;
+    private final LocalDateTime clickDate;
+    private final String referrer;
+    private final String userAgent;
+    private final String remoteAddress;
+
+    public ClickRecord(Long urlMappingId, Long userId, LocalDateTime clickDate) {
+        this(urlMappingId, userId, clickDate, null, null, null);
+    }
+
+    public ClickRecord(Long urlMappingId, Long userId, LocalDateTime clickDate,
+                       String referrer, String userAgent, String remoteAddress) {
+        this.urlMappingId = urlMappingId;
+        this.userId = userId;
+        this.clickDate = clickDate;
+        this.referrer = referrer;
+        this.userAgent = userAgent;
+        this.remoteAddress = remoteAddress;
+    }
+
+    public Long getUrlMappingId() {
+        return urlMappingId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public LocalDateTime getClickDate() {
+        return clickDate;
+    }
+
+    public String getReferrer() {
+        return referrer;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+}
@@ -0,0 +1,211 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+import com.iaschowrai.urlshortner.models.UrlClickRollupDaily;
+import com.iaschowrai.urlshortner.models.UrlClickRollupHourly;
+import com.iaschowrai.urlshortner.models.UserClickRollupDaily;
+import com.iaschowrai.urlshortner.repository.UrlClickRollupDailyRepository;
+import com.iaschowrai.urlshortner.repository.UrlClickRollupHourlyRepository;
+import com.iaschowrai.urlshortner.repository.UserClickRollupDailyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+The `ClickRollupService` maintains the click rollup tables incrementally: per short URL per hour, per short URL per
+day, and per user per day. Every batch written by the `ClickEventRecorder` is folded into a handful of upserts, and the
+analytics endpoints read O(days) rollup rows instead of O(clicks) `click_events` rows.
+
+On a database upgraded from before rollups, `click_events` has rows while the rollup tables are empty, and analytics
+would show nothing. That is detected at startup and the rollups are built once from `click_events`.
+ */
+@Service
+public class ClickRollupService implements ClickBatchListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickRollupService.class);
+
+    private static final String UPSERT_URL_HOURLY =
+            "INSERT INTO click_rollups_hourly (url_mapping_id, bucket_start, click_count) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE click_count = click_count + VALUES(click_count)";
+    private static final String UPSERT_URL_DAILY =
+            "INSERT INTO click_rollups_daily (url_mapping_id, bucket_date, click_count) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE click_count = click_count + VALUES(click_count)";
+    private static final String UPSERT_USER_DAILY =
+            "INSERT INTO user_click_rollups_daily (user_id, bucket_date, click_count) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE click_count = click_count + VALUES(click_count)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UrlClickRollupHourlyRepository hourlyRepository;
+    private final UrlClickRollupDailyRepository dailyRepository;
+    private final UserClickRollupDailyRepository userDailyRepository;
+    private final boolean backfillOnStartup;
+    private final boolean sharded;
+
+    public ClickRollupService(JdbcTemplate jdbcTemplate,
+                              UrlClickRollupHourlyRepository hourlyRepository,
+                              UrlClickRollupDailyRepository dailyRepository,
+                              UserClickRollupDailyRepository userDailyRepository,
+                              @Value("${url.analytics.rollups.backfill-on-startup:false}") boolean backfillOnStartup,
+                              @Value("${url.shards.enabled:false}") boolean sharded) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hourlyRepository = hourlyRepository;
+        this.dailyRepository = dailyRepository;
+        this.userDailyRepository = userDailyRepository;
+        this.backfillOnStartup = backfillOnStartup;
+        this.sharded = sharded;
+    }
+
+    @Override
+    public void onClickBatch(List<ClickRecord> batch) {
+        Map<BucketKey, Long> urlHourly = new HashMap<>();
+        Map<BucketKey, Long> urlDaily = new HashMap<>();
+        Map<BucketKey, Long> userDaily = new HashMap<>();
+
+        for (ClickRecord clickRecord : batch) {
+            LocalDateTime hour = clickRecord.getClickDate().truncatedTo(ChronoUnit.HOURS);
+            urlHourly.merge(new BucketKey(clickRecord.getUrlMappingId(), hour), 1L, Long::sum);
+            urlDaily.merge(new BucketKey(clickRecord.getUrlMappingId(), hour.toLocalDate()), 1L, Long::sum);
+            if (clickRecord.getUserId() != null) {
+                userDaily.merge(new BucketKey(clickRecord.getUserId(), hour.toLocalDate()), 1L, Long::sum);
+            }
+        }
+
+        upsert(UPSERT_URL_HOURLY, urlHourly);
+        upsert(UPSERT_URL_DAILY, urlDaily);
+        upsert(UPSERT_USER_DAILY, userDaily);
+    }
+
+    /**
+     * Clicks per day for one short URL between start and end (inclusive).
+     * Whole days are read from the daily rollup; partial days at either end are summed from the hourly rollup, so
+     * those edges have hour granularity.
+     */
+    @Transactional(readOnly = true)
+    public Map<LocalDate, Long> getDailyClicks(Long urlMappingId, LocalDateTime start, LocalDateTime end) {
+        Map<LocalDate, Long> clicks = new TreeMap<>();
+        if (end.isBefore(start)) {
+            return clicks;
+        }
+
+        LocalDate firstFullDay = start.equals(start.toLocalDate().atStartOfDay())
+                ? start.toLocalDate()
+                : start.toLocalDate().plusDays(1);
+        LocalDate lastFullDay = end.toLocalDate().minusDays(1);
+
+        if (firstFullDay.isAfter(lastFullDay)) {
+            addHourly(clicks, urlMappingId, start, end);
+            return clicks;
+        }
+
+        addHourly(clicks, urlMappingId, start, firstFullDay.atStartOfDay().minusHours(1));
+        for (UrlClickRollupDaily rollup : dailyRepository.findByUrlMappingIdAndBucketDateBetween(urlMappingId, firstFullDay, lastFullDay)) {
+            clicks.merge(rollup.getBucketDate(), rollup.getClickCount(), Long::sum);
+        }
+        addHourly(clicks, urlMappingId, lastFullDay.plusDays(1).atStartOfDay(), end);
+        return clicks;
+    }
+
+    // Clicks per day across all of a user's short URLs between start and end (inclusive)
+    @Transactional(readOnly = true)
+    public Map<LocalDate, Long> getUserDailyClicks(Long userId, LocalDate start, LocalDate end) {
+        Map<LocalDate, Long> clicks = new TreeMap<>();
+        for (UserClickRollupDaily rollup : userDailyRepository.findByUserIdAndBucketDateBetween(userId, start, end)) {
+            clicks.put(rollup.getBucketDate(), rollup.getClickCount());
+        }
+        return clicks;
+    }
+
+    // Removes all rollups of one mapping; the per-user daily rollups keep the clicks as history
+    @Transactional
+    public void deleteRollups(Long urlMappingId) {
+        hourlyRepository.deleteByUrlMappingId(urlMappingId);
+        dailyRepository.deleteByUrlMappingId(urlMappingId);
+    }
+
+    /**
+     * Rebuilds all rollups from click_events.
+     * Meant for the first deployment on an existing database; clicks ingested while it runs may be counted twice.
+     * The per-user rollup needs the owner of each mapping, so it is left empty while url_mappings is sharded.
+     */
+    @Transactional
+    public void rebuildFromClickEvents() {
+        logger.info("Rebuilding click rollups from click_events.");
+        jdbcTemplate.update("DELETE FROM click_rollups_hourly");
+        jdbcTemplate.update("DELETE FROM click_rollups_daily");
+        jdbcTemplate.update("DELETE FROM user_click_rollups_daily");
+        jdbcTemplate.update(
+                "INSERT INTO click_rollups_hourly (url_mapping_id, bucket_start, click_count) " +
+                "SELECT url_mapping_id, DATE_FORMAT(click_date, '%Y-%m-%d %H:00:00'), COUNT(*) FROM click_events " +
+                "GROUP BY url_mapping_id, DATE_FORMAT(click_date, '%Y-%m-%d %H:00:00')");
+        jdbcTemplate.update(
+                "INSERT INTO click_rollups_daily (url_mapping_id, bucket_date, click_count) " +
+                "SELECT url_mapping_id, DATE(click_date), COUNT(*) FROM click_events " +
+                "GROUP BY url_mapping_id, DATE(click_date)");
+        if (sharded) {
+            logger.warn("url_mappings is sharded; user click rollups are only filled by new clicks.");
+        } else {
+            jdbcTemplate.update(
+                    "INSERT INTO user_click_rollups_daily (user_id, bucket_date, click_count) " +
+                    "SELECT m.user_id, DATE(c.click_date), COUNT(*) FROM click_events c " +
+                    "JOIN url_mappings m ON m.id = c.url_mapping_id GROUP BY m.user_id, DATE(c.click_date)");
+        }
+        logger.info("Click rollups rebuilt.");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfNeeded() {
+        if (backfillOnStartup) {
+            rebuildFromClickEvents();
+        } else if (isEmpty("click_rollups_daily") && !isEmpty("click_events")) {
+            logger.info("Click rollups are empty but click_events is not; backfilling them.");
+            rebuildFromClickEvents();
+        }
+    }
+
+    private boolean isEmpty(String table) {
+        return jdbcTemplate.queryForList("SELECT 1 FROM " + table + " LIMIT 1").isEmpty();
+    }
+
+    private void addHourly(Map<LocalDate, Long> clicks, Long urlMappingId, LocalDateTime from, LocalDateTime to) {
+        if (to.isBefore(from.truncatedTo(ChronoUnit.HOURS))) {
+            return;
+        }
+        for (UrlClickRollupHourly rollup : hourlyRepository.findByUrlMappingIdAndBucketStartBetween(
+                urlMappingId, from.truncatedTo(ChronoUnit.HOURS), to)) {
+            clicks.merge(rollup.getBucketStart().toLocalDate(), rollup.getClickCount(), Long::sum);
+        }
+    }
+
+    private void upsert(String sql, Map<BucketKey, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, new ArrayList<>(counts.entrySet()), counts.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getKey().ownerId());
+            if (entry.getKey().bucket() instanceof LocalDateTime hour) {
+                ps.setTimestamp(2, Timestamp.valueOf(hour));
+            } else {
+                ps.setDate(2, Date.valueOf((LocalDate) entry.getKey().bucket()));
+            }
+            ps.setLong(3, entry.getValue());
+        });
+    }
+
+    private record BucketKey(Long ownerId, Object bucket) {
+    }
+}
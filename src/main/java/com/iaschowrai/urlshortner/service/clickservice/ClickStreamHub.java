@@ -0,0 +1,219 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+import com.iaschowrai.urlshortner.dtos.ClickDeltaDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+The `ClickStreamHub` pushes live click deltas to dashboards over server-sent events instead of having them poll the
+analytics endpoints. `publish` is called on every redirect; for users without a subscriber it is a single map lookup,
+otherwise a `LongAdder` increment per short URL. Every `url.stream.interval-ms` the deltas of each user are drained and
+offered to that user's subscribers as one `clicks` event.
+
+Each subscriber is sent to by at most one sender thread at a time. While a send is still in progress (a slow client),
+further deltas are merged into the subscriber's single unsent map rather than queued, so memory per subscriber is
+bounded by the number of links the user has, however long the client lags. Subscribers get a comment line as keepalive
+when there was nothing to send for `url.stream.heartbeat-ms`. The fan-out is in-process: a dashboard only sees clicks
+served by the instance it is connected to.
+ */
+@Component
+public class ClickStreamHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickStreamHub.class);
+
+    private final ConcurrentHashMap<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<String, LongAdder>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService sender;
+    private final long timeoutMs;
+    private final long heartbeatMs;
+    private final int maxSubscribersPerUser;
+    private final int maxSubscribers;
+    private final Counter eventCounter;
+
+    public ClickStreamHub(MeterRegistry meterRegistry,
+                          @Value("${url.stream.sender-threads:4}") int senderThreads,
+                          @Value("${url.stream.timeout-ms:1800000}") long timeoutMs,
+                          @Value("${url.stream.heartbeat-ms:15000}") long heartbeatMs,
+                          @Value("${url.stream.max-subscribers-per-user:5}") int maxSubscribersPerUser,
+                          @Value("${url.stream.max-subscribers:10000}") int maxSubscribers) {
+        this.sender = Executors.newFixedThreadPool(senderThreads);
+        this.timeoutMs = timeoutMs;
+        this.heartbeatMs = heartbeatMs;
+        this.maxSubscribersPerUser = maxSubscribersPerUser;
+        this.maxSubscribers = maxSubscribers;
+        Gauge.builder("url.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open click streams")
+                .register(meterRegistry);
+        this.eventCounter = meterRegistry.counter("url.stream.events");
+    }
+
+    /**
+     * Opens a click stream for the user.
+     * Returns null if the user or the instance already has the maximum number of open streams.
+     */
+    public SseEmitter subscribe(Long userId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        boolean[] added = new boolean[1];
+        subscribers.compute(userId, (id, current) -> {
+            List<Subscriber> list = current == null ? new CopyOnWriteArrayList<>() : current;
+            if (list.size() < maxSubscribersPerUser) {
+                list.add(subscriber);
+                added[0] = true;
+            }
+            pending.computeIfAbsent(id, key -> new ConcurrentHashMap<>());
+            return list;
+        });
+        if (!added[0]) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+        logger.debug("Opened click stream for user id {}.", userId);
+        return emitter;
+    }
+
+    // Called for every redirect; does nothing unless the owner has an open stream
+    public void publish(Long userId, String shortUrl) {
+        if (userId == null) {
+            return;
+        }
+        ConcurrentHashMap<String, LongAdder> deltas = pending.get(userId);
+        if (deltas == null) {
+            return;
+        }
+        LongAdder adder = deltas.get(shortUrl);
+        if (adder == null) {
+            adder = deltas.computeIfAbsent(shortUrl, key -> new LongAdder());
+        }
+        adder.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${url.stream.interval-ms:1000}")
+    public void dispatch() {
+        long now = System.currentTimeMillis();
+        pending.forEach((userId, deltas) -> {
+            Map<String, Long> clicks = new HashMap<>();
+            deltas.forEach((shortUrl, adder) -> {
+                long delta = adder.sumThenReset();
+                if (delta > 0) {
+                    clicks.put(shortUrl, delta);
+                }
+            });
+            List<Subscriber> userSubscribers = subscribers.get(userId);
+            if (userSubscribers == null) {
+                return;
+            }
+            for (Subscriber subscriber : userSubscribers) {
+                subscriber.offer(clicks, now);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(list -> list.forEach(subscriber -> subscriber.emitter.complete()));
+        sender.shutdownNow();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (id, list) -> {
+            if (list.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            if (list.isEmpty()) {
+                pending.remove(id);
+                return null;
+            }
+            return list;
+        });
+    }
+
+    private final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+
+        // Guarded by this
+        private Map<String, Long> unsent = new HashMap<>();
+        private boolean sending;
+        private long lastSentAt = System.currentTimeMillis();
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        // Merges the deltas into the unsent map and starts a send unless one is already running
+        private void offer(Map<String, Long> clicks, long now) {
+            synchronized (this) {
+                clicks.forEach((shortUrl, delta) -> unsent.merge(shortUrl, delta, Long::sum));
+                if (sending || (unsent.isEmpty() && now - lastSentAt < heartbeatMs)) {
+                    return;
+                }
+                sending = true;
+            }
+            sender.execute(this::send);
+        }
+
+        private void send() {
+            while (true) {
+                Map<String, Long> clicks;
+                synchronized (this) {
+                    clicks = unsent;
+                    unsent = new HashMap<>();
+                }
+                try {
+                    if (!clicks.isEmpty()) {
+                        emitter.send(SseEmitter.event()
+                                .name("clicks")
+                                .data(new ClickDeltaDTO(LocalDateTime.now(), clicks), MediaType.APPLICATION_JSON));
+                        eventCounter.increment();
+                    } else {
+                        emitter.send(SseEmitter.event().comment("keepalive"));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    logger.debug("Closing click stream for user id {}: {}", userId, e.getMessage());
+                    unsubscribe(this);
+                    emitter.completeWithError(e);
+                    return;
+                }
+                synchronized (this) {
+                    lastSentAt = System.currentTimeMillis();
+                    if (unsent.isEmpty()) {
+                        sending = false;
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
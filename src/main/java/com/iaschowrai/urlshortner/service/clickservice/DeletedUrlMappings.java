@@ -0,0 +1,45 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/*
+The `DeletedUrlMappings` remembers the ids of mappings deleted on this node for `url.clicks.deleted-retention-ms`. Click
+work that was already queued when a mapping was deleted (click events and their rollups and segments in the
+`ClickEventRecorder`, deltas in the `ClickCounter`, sketches being flushed by the `ClickSketchService`) is checked
+against it and discarded, instead of being written after the bulk deletes and leaving orphan rows behind. Mapping ids
+are never reused, so an entry that outlives its delete is harmless.
+
+Only deletes made on this node are known here; clicks queued on other nodes can still be written within their flush
+interval.
+ */
+@Component
+public class DeletedUrlMappings {
+
+    private final Cache<Long, Boolean> deleted;
+
+    public DeletedUrlMappings(@Value("${url.clicks.deleted-retention-ms:600000}") long retentionMs,
+                              @Value("${url.clicks.deleted-maximum-size:100000}") long maximumSize) {
+        this.deleted = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(retentionMs))
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public void add(Long urlMappingId) {
+        deleted.put(urlMappingId, Boolean.TRUE);
+    }
+
+    // For a delete that rolled back
+    public void remove(Long urlMappingId) {
+        deleted.invalidate(urlMappingId);
+    }
+
+    public boolean contains(Long urlMappingId) {
+        return deleted.getIfPresent(urlMappingId) != null;
+    }
+}
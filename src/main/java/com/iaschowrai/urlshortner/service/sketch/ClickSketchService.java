@@ -0,0 +1,282 @@
+package com.iaschowrai.urlshortner.service.sketch;
+
+import com.iaschowrai.urlshortner.dtos.AudienceDTO;
+import com.iaschowrai.urlshortner.dtos.HeavyHitterDTO;
+import com.iaschowrai.urlshortner.models.UrlClickSketchDaily;
+import com.iaschowrai.urlshortner.repository.UrlClickSketchDailyRepository;
+import com.iaschowrai.urlshortner.service.clicklog.ClickEnricher;
+import com.iaschowrai.urlshortner.service.clickservice.ClickBatchListener;
+import com.iaschowrai.urlshortner.service.clickservice.ClickRecord;
+import com.iaschowrai.urlshortner.service.clickservice.DeletedUrlMappings;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+The `ClickSketchService` keeps per-link, per-day sketches of the audience: a `HyperLogLog` of visitor hashes (client
+address plus user agent, never stored raw) for unique visitors and a `SpaceSaving` sketch of referrer hosts for the top
+referrers. Each is bounded in size (`url.analytics.sketches.precision`, `url.analytics.sketches.referrer-capacity`)
+however much traffic a link gets.
+
+Clicks are folded into in-memory sketches as the `ClickEventRecorder` hands over each batch. A scheduled flush merges
+them into the `click_sketches_daily` blobs, reading the rows `FOR UPDATE` so concurrent instances do not overwrite each
+other. The rows are locked in key order, a few hundred per statement, so two instances flushing overlapping links wait
+for each other instead of deadlocking; a flush that still fails is retried with the next one. Queries merge the stored days with whatever is still in memory. Sketches of a mapping deleted while they were
+being flushed are not written (see `DeletedUrlMappings`).
+ */
+@Service
+public class ClickSketchService implements ClickBatchListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickSketchService.class);
+
+    // Rows locked per SELECT ... FOR UPDATE
+    private static final int LOCK_CHUNK_SIZE = 500;
+
+    private static final String SELECT_FOR_UPDATE =
+            "SELECT url_mapping_id, bucket_date, visitors, referrers FROM click_sketches_daily " +
+            "WHERE (url_mapping_id, bucket_date) IN (%s) ORDER BY url_mapping_id, bucket_date FOR UPDATE";
+    private static final String UPSERT_SKETCH =
+            "INSERT INTO click_sketches_daily (url_mapping_id, bucket_date, visitors, referrers) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE visitors = VALUES(visitors), referrers = VALUES(referrers)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UrlClickSketchDailyRepository sketchRepository;
+    private final ClickEnricher clickEnricher;
+    private final DeletedUrlMappings deletedUrlMappings;
+    private final int precision;
+    private final int referrerCapacity;
+
+    // Guards pending and inFlight; sketches are only mutated while it is held
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private Map<Long, Map<LocalDate, DaySketch>> pending = new HashMap<>();
+    private Map<Long, Map<LocalDate, DaySketch>> inFlight = Map.of();
+
+    public ClickSketchService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              UrlClickSketchDailyRepository sketchRepository,
+                              ClickEnricher clickEnricher,
+                              DeletedUrlMappings deletedUrlMappings,
+                              MeterRegistry meterRegistry,
+                              @Value("${url.analytics.sketches.precision:12}") int precision,
+                              @Value("${url.analytics.sketches.referrer-capacity:32}") int referrerCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sketchRepository = sketchRepository;
+        this.clickEnricher = clickEnricher;
+        this.deletedUrlMappings = deletedUrlMappings;
+        this.precision = precision;
+        this.referrerCapacity = referrerCapacity;
+        Gauge.builder("url.analytics.sketches.pending", this, ClickSketchService::pendingLinks)
+                .description("Links with sketch updates not yet flushed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onClickBatch(List<ClickRecord> batch) {
+        lock.lock();
+        try {
+            for (ClickRecord clickRecord : batch) {
+                DaySketch sketch = pending
+                        .computeIfAbsent(clickRecord.getUrlMappingId(), id -> new HashMap<>())
+                        .computeIfAbsent(clickRecord.getClickDate().toLocalDate(), day -> new DaySketch(precision, referrerCapacity));
+                if (clickRecord.getRemoteAddress() != null) {
+                    sketch.visitors.offer(HyperLogLog.hash(clickRecord.getRemoteAddress() + '|' + clickRecord.getUserAgent()));
+                }
+                sketch.referrers.offer(clickEnricher.referrerHost(clickRecord.getReferrer()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Unique visitors and top referrers of one short URL between start and end (inclusive), merged over the days.
+     * Both are estimates; see HyperLogLog and SpaceSaving for their error bounds.
+     */
+    @Transactional(readOnly = true)
+    public AudienceDTO getAudience(Long urlMappingId, LocalDate start, LocalDate end, int topReferrers) {
+        DaySketch total = new DaySketch(precision, referrerCapacity);
+        for (UrlClickSketchDaily row : sketchRepository.findByUrlMappingIdAndBucketDateBetween(urlMappingId, start, end)) {
+            total.visitors.merge(HyperLogLog.fromBytes(row.getVisitors()));
+            total.referrers.merge(SpaceSaving.fromBytes(row.getReferrers()));
+        }
+
+        lock.lock();
+        try {
+            mergeUnflushed(total, inFlight.get(urlMappingId), start, end);
+            mergeUnflushed(total, pending.get(urlMappingId), start, end);
+        } finally {
+            lock.unlock();
+        }
+
+        List<HeavyHitterDTO> referrers = total.referrers.top(topReferrers).stream()
+                .map(entry -> new HeavyHitterDTO(entry.item(), entry.count(), entry.error()))
+                .toList();
+        return new AudienceDTO(start, end, total.visitors.estimate(), referrers);
+    }
+
+    // Removes all sketches of one mapping, including those not yet flushed
+    @Transactional
+    public void deleteSketches(Long urlMappingId) {
+        lock.lock();
+        try {
+            pending.remove(urlMappingId);
+        } finally {
+            lock.unlock();
+        }
+        sketchRepository.deleteByUrlMappingId(urlMappingId);
+    }
+
+    @Scheduled(fixedDelayString = "${url.analytics.sketches.flush-interval-ms:60000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Long, Map<LocalDate, DaySketch>> drained;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                drained = pending;
+                pending = new HashMap<>();
+                inFlight = drained;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(drained));
+            } catch (RuntimeException e) {
+                logger.error("Failed to flush click sketches for {} links, retrying on next flush: {}", drained.size(), e.getMessage());
+                lock.lock();
+                try {
+                    drained.entrySet().removeIf(entry -> deletedUrlMappings.contains(entry.getKey()));
+                    drained.forEach((id, days) -> days.forEach((day, sketch) -> pending
+                            .computeIfAbsent(id, key -> new HashMap<>())
+                            .computeIfAbsent(day, key -> new DaySketch(precision, referrerCapacity))
+                            .merge(sketch)));
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                lock.lock();
+                try {
+                    inFlight = Map.of();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Merges the drained sketches into the stored rows; the drained sketches are left untouched so a retry is exact
+    private void write(Map<Long, Map<LocalDate, DaySketch>> drained) {
+        List<SketchKey> keys = new ArrayList<>();
+        drained.forEach((id, days) -> {
+            if (!deletedUrlMappings.contains(id)) {
+                days.keySet().forEach(day -> keys.add(new SketchKey(id, day)));
+            }
+        });
+        // Every instance locks in the same order
+        keys.sort(Comparator.comparing(SketchKey::urlMappingId).thenComparing(SketchKey::day));
+
+        List<Object[]> rows = new ArrayList<>(keys.size());
+        for (int from = 0; from < keys.size(); from += LOCK_CHUNK_SIZE) {
+            List<SketchKey> chunk = keys.subList(from, Math.min(from + LOCK_CHUNK_SIZE, keys.size()));
+            Map<SketchKey, DaySketch> stored = lockStored(chunk);
+            for (SketchKey key : chunk) {
+                DaySketch merged = stored.computeIfAbsent(key, missing -> new DaySketch(precision, referrerCapacity));
+                merged.merge(drained.get(key.urlMappingId()).get(key.day()));
+                rows.add(new Object[]{key.urlMappingId(), Date.valueOf(key.day()),
+                        merged.visitors.toBytes(), merged.referrers.toBytes()});
+            }
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SKETCH, rows);
+    }
+
+    // Reads and locks the stored sketches of the given keys with one statement; keys without a row are left out
+    private Map<SketchKey, DaySketch> lockStored(List<SketchKey> keys) {
+        String sql = String.format(SELECT_FOR_UPDATE, String.join(", ", Collections.nCopies(keys.size(), "(?, ?)")));
+        Object[] args = new Object[keys.size() * 2];
+        for (int i = 0; i < keys.size(); i++) {
+            args[2 * i] = keys.get(i).urlMappingId();
+            args[2 * i + 1] = Date.valueOf(keys.get(i).day());
+        }
+        Map<SketchKey, DaySketch> stored = new HashMap<>();
+        jdbcTemplate.query(sql, resultSet -> {
+            stored.put(new SketchKey(resultSet.getLong(1), resultSet.getDate(2).toLocalDate()),
+                    new DaySketch(HyperLogLog.fromBytes(resultSet.getBytes(3)), SpaceSaving.fromBytes(resultSet.getBytes(4))));
+        }, args);
+        return stored;
+    }
+
+    private static void mergeUnflushed(DaySketch total, Map<LocalDate, DaySketch> days, LocalDate start, LocalDate end) {
+        if (days == null) {
+            return;
+        }
+        days.forEach((day, sketch) -> {
+            if (!day.isBefore(start) && !day.isAfter(end)) {
+                total.merge(sketch);
+            }
+        });
+    }
+
+    private int pendingLinks() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record SketchKey(Long urlMappingId, LocalDate day) {
+    }
+
+    private static final class DaySketch {
+        private final HyperLogLog visitors;
+        private final SpaceSaving referrers;
+
+        private DaySketch(int precision, int referrerCapacity) {
+            this(new HyperLogLog(precision), new SpaceSaving(referrerCapacity));
+        }
+
+        private DaySketch(HyperLogLog visitors, SpaceSaving referrers) {
+            this.visitors = visitors;
+            this.referrers = referrers;
+        }
+
+        private void merge(DaySketch other) {
+            visitors.merge(other.visitors);
+            referrers.merge(other.referrers);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.iaschowrai.urlshortner.service.sketch;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+A HyperLogLog distinct-count sketch with 2^precision registers: about 1.04 / sqrt(2^precision) relative error in at most
+2^precision bytes, however many items are offered. Small sketches start sparse, as a sorted array of (register, rank)
+entries, and switch to the dense byte-per-register form once that would be smaller; most short URLs never get there.
+
+Serialized form: format byte, precision byte, then either an entry count and 3 bytes per entry (sparse) or one byte per
+register (dense).
+ */
+public final class HyperLogLog {
+
+    private static final byte SPARSE = 1;
+    private static final byte DENSE = 2;
+
+    private final int precision;
+    private final int registerCount;
+
+    private byte[] registers;
+    // Sorted by register index; each entry is index << 8 | rank
+    private int[] sparse = new int[8];
+    private int sparseSize;
+
+    public HyperLogLog(int precision) {
+        if (precision < 7 || precision > 16) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 7 and 16.");
+        }
+        this.precision = precision;
+        this.registerCount = 1 << precision;
+    }
+
+    // 64-bit hash of a string for offer: FNV-1a over the chars, then the MurmurHash3 finalizer to spread the bits
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    public void offer(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        update(index, rank);
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches of different precision.");
+        }
+        if (other.registers != null) {
+            for (int index = 0; index < registerCount; index++) {
+                if (other.registers[index] != 0) {
+                    update(index, other.registers[index]);
+                }
+            }
+        } else {
+            for (int i = 0; i < other.sparseSize; i++) {
+                update(other.sparse[i] >>> 8, other.sparse[i] & 0xFF);
+            }
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        if (registers != null) {
+            for (byte register : registers) {
+                sum += 1.0 / (1L << register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+        } else {
+            zeros = registerCount - sparseSize;
+            sum = zeros;
+            for (int i = 0; i < sparseSize; i++) {
+                sum += 1.0 / (1L << (sparse[i] & 0xFF));
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / registerCount);
+        double estimate = alpha * registerCount * registerCount / sum;
+        // Linear counting is more accurate while many registers are still empty
+        if (estimate <= 2.5 * registerCount && zeros > 0) {
+            estimate = registerCount * Math.log((double) registerCount / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        if (registers != null) {
+            return ByteBuffer.allocate(2 + registerCount).put(DENSE).put((byte) precision).put(registers).array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(6 + 3 * sparseSize).put(SPARSE).put((byte) precision).putInt(sparseSize);
+        for (int i = 0; i < sparseSize; i++) {
+            buffer.putShort((short) (sparse[i] >>> 8)).put((byte) sparse[i]);
+        }
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte format = buffer.get();
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+        if (format == DENSE) {
+            sketch.registers = new byte[sketch.registerCount];
+            buffer.get(sketch.registers);
+            sketch.sparse = null;
+        } else {
+            int size = buffer.getInt();
+            sketch.sparse = new int[Math.max(8, size)];
+            for (int i = 0; i < size; i++) {
+                sketch.sparse[i] = (buffer.getShort() & 0xFFFF) << 8 | (buffer.get() & 0xFF);
+            }
+            sketch.sparseSize = size;
+        }
+        return sketch;
+    }
+
+    private void update(int index, int rank) {
+        if (registers != null) {
+            if (rank > registers[index]) {
+                registers[index] = (byte) rank;
+            }
+            return;
+        }
+
+        int low = 0;
+        int high = sparseSize - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleIndex = sparse[middle] >>> 8;
+            if (middleIndex < index) {
+                low = middle + 1;
+            } else if (middleIndex > index) {
+                high = middle - 1;
+            } else {
+                if (rank > (sparse[middle] & 0xFF)) {
+                    sparse[middle] = index << 8 | rank;
+                }
+                return;
+            }
+        }
+
+        // An int entry per register costs four bytes, so switch once a quarter of the registers are set
+        if (sparseSize + 1 > registerCount / 4) {
+            toDense();
+            registers[index] = (byte) rank;
+            return;
+        }
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, sparse.length * 2);
+        }
+        System.arraycopy(sparse, low, sparse, low + 1, sparseSize - low);
+        sparse[low] = index << 8 | rank;
+        sparseSize++;
+    }
+
+    private void toDense() {
+        registers = new byte[registerCount];
+        for (int i = 0; i < sparseSize; i++) {
+            registers[sparse[i] >>> 8] = (byte) (sparse[i] & 0xFF);
+        }
+        sparse = null;
+        sparseSize = 0;
+    }
+}
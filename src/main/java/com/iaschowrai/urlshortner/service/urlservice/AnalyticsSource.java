@@ -0,0 +1,13 @@
+package com.iaschowrai.urlshortner.service.urlservice;
+
+/*
+Where `UrlMappingService` answers the clicks-per-day analytics from, selected with `url.analytics.source`.
+ */
+public enum AnalyticsSource {
+
+    // Incrementally maintained rollup tables; reads O(days) rows
+    ROLLUPS,
+
+    // GROUP BY over click_events in the database; reads O(clicks) index entries but never builds entities
+    EVENTS
+}
@@ -0,0 +1,31 @@
+package com.iaschowrai.urlshortner.service.urlservice;
+
+/*
+Fixed-width base62 encoding of non-negative longs, using the same alphabet the random generator always used.
+ */
+final class Base62 {
+
+    static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    static final int BASE = 62;
+
+    private Base62() {
+    }
+
+    // Number of distinct values that fit in the given width
+    static long capacity(int width) {
+        long capacity = 1;
+        for (int i = 0; i < width; i++) {
+            capacity = Math.multiplyExact(capacity, BASE);
+        }
+        return capacity;
+    }
+
+    static String encode(long value, int width) {
+        char[] chars = new char[width];
+        for (int i = width - 1; i >= 0; i--) {
+            chars[i] = ALPHABET.charAt((int) (value % BASE));
+            value /= BASE;
+        }
+        return new String(chars);
+    }
+}
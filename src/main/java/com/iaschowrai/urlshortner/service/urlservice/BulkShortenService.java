@@ -0,0 +1,205 @@
+package com.iaschowrai.urlshortner.service.urlservice;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iaschowrai.urlshortner.models.User;
+import com.iaschowrai.urlshortner.repository.ReadYourWrites;
+import com.iaschowrai.urlshortner.repository.UrlMappingStore;
+import com.iaschowrai.urlshortner.repository.UrlMappingStore.NewUrlMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+The `BulkShortenService` shortens a JSON array of URLs without holding the request or the response in memory. Items are
+read one at a time with a streaming parser and collected into chunks of `url.bulk.batch-size`. Each chunk gets its
+codes from the `ShortCodeGenerator` in one call and is inserted through `UrlMappingStore.createAll` in as few batches
+as possible; results are streamed back as a JSON array with one entry per input item, carrying either the short URL or
+the error for that item.
+
+Items may be plain strings or objects with an `originalUrl` field, matching the body of `/api/urls/shorten`. A body that
+is not a JSON array is rejected before anything is written. Malformed JSON further in cannot be answered with an error
+status any more, since results may already be on their way: the items read until then are shortened and the array is
+closed with an error entry at the index where reading stopped.
+ */
+@Service
+public class BulkShortenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkShortenService.class);
+
+    private final ObjectMapper objectMapper;
+    private final UrlMappingStore urlMappingStore;
+    private final ShortCodeGenerator shortCodeGenerator;
+    private final ShortCodeFilter shortCodeFilter;
+    private final ReadYourWrites readYourWrites;
+    private final int batchSize;
+    private final int maxItems;
+
+    public BulkShortenService(ObjectMapper objectMapper,
+                              UrlMappingStore urlMappingStore,
+                              ShortCodeGenerator shortCodeGenerator,
+                              ShortCodeFilter shortCodeFilter,
+                              ReadYourWrites readYourWrites,
+                              @Value("${url.bulk.batch-size:1000}") int batchSize,
+                              @Value("${url.bulk.max-items:100000}") int maxItems) {
+        this.objectMapper = objectMapper;
+        this.urlMappingStore = urlMappingStore;
+        this.shortCodeGenerator = shortCodeGenerator;
+        this.shortCodeFilter = shortCodeFilter;
+        this.readYourWrites = readYourWrites;
+        this.batchSize = batchSize;
+        this.maxItems = maxItems;
+    }
+
+    // Returns the number of short URLs created
+    public int shorten(InputStream requestBody, OutputStream responseBody, User user) throws IOException {
+        if (user == null || user.getId() == null) {
+            throw new IllegalArgumentException("User cannot be null.");
+        }
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(requestBody)) {
+            // Validated before anything is written, so the caller can still answer with 400
+            if (!startsArray(parser)) {
+                throw new IllegalArgumentException("Request body must be a JSON array.");
+            }
+
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(responseBody)) {
+                generator.writeStartArray();
+                List<BulkItem> chunk = new ArrayList<>(batchSize);
+                int index = 0;
+                int created = 0;
+                JsonProcessingException malformed = null;
+
+                try {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (index >= maxItems) {
+                            writeError(generator, new BulkItem(index, null), "Too many items, the limit is " + maxItems + ".");
+                            break;
+                        }
+                        String originalUrl = readOriginalUrl(parser);
+                        BulkItem item = new BulkItem(index++, originalUrl);
+                        if (item.originalUrl == null || item.originalUrl.trim().isEmpty()) {
+                            writeError(generator, item, "Original URL cannot be null or empty.");
+                            continue;
+                        }
+                        chunk.add(item);
+                        if (chunk.size() == batchSize) {
+                            created += insertChunk(chunk, user, generator);
+                            chunk.clear();
+                            generator.flush();
+                        }
+                    }
+                } catch (JsonProcessingException e) {
+                    malformed = e;
+                }
+                if (!chunk.isEmpty()) {
+                    created += insertChunk(chunk, user, generator);
+                }
+                if (malformed != null) {
+                    logger.warn("Malformed bulk shorten request after {} items: {}", index, malformed.getOriginalMessage());
+                    writeError(generator, new BulkItem(index, null), "Malformed JSON: " + malformed.getOriginalMessage());
+                }
+
+                generator.writeEndArray();
+                // Individual codes are not pinned; a redirect that misses on a replica is retried on the primary
+                readYourWrites.markWritten(ReadYourWrites.userKey(user.getId()));
+                logger.info("Bulk shortened {} of {} URLs for user id {}.", created, index, user.getId());
+                return created;
+            }
+        }
+    }
+
+    // A body that is not JSON at all is rejected the same way as one that is not an array
+    private static boolean startsArray(JsonParser parser) throws IOException {
+        try {
+            return parser.nextToken() == JsonToken.START_ARRAY;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Request body is not valid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    // Reads the current array element; anything other than a string or an object with originalUrl yields null
+    private String readOriginalUrl(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String originalUrl = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("originalUrl".equals(field) && value == JsonToken.VALUE_STRING) {
+                originalUrl = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return originalUrl;
+    }
+
+    private int insertChunk(List<BulkItem> chunk, User user, JsonGenerator generator) throws IOException {
+        List<String> shortCodes = shortCodeGenerator.nextShortCodes(chunk.size());
+        LocalDateTime createdDate = LocalDateTime.now();
+        List<NewUrlMapping> mappings = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            BulkItem item = chunk.get(i);
+            item.shortUrl = shortCodes.get(i);
+            mappings.add(new NewUrlMapping(item.originalUrl, item.shortUrl, user.getId(), createdDate));
+        }
+
+        boolean[] inserted = urlMappingStore.createAll(mappings);
+        int created = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            BulkItem item = chunk.get(i);
+            if (inserted[i]) {
+                shortCodeFilter.put(item.shortUrl);
+                writeCreated(generator, item);
+                created++;
+            } else {
+                writeError(generator, item, "Failed to create short URL.");
+            }
+        }
+        return created;
+    }
+
+    private void writeCreated(JsonGenerator generator, BulkItem item) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("index", item.index);
+        generator.writeStringField("originalUrl", item.originalUrl);
+        generator.writeStringField("shortUrl", item.shortUrl);
+        generator.writeEndObject();
+    }
+
+    private void writeError(JsonGenerator generator, BulkItem item, String error) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("index", item.index);
+        generator.writeStringField("originalUrl", item.originalUrl);
+        generator.writeStringField("error", error);
+        generator.writeEndObject();
+    }
+
+    private static final class BulkItem {
+        private final int index;
+        private final String originalUrl;
+        private String shortUrl;
+
+        private BulkItem(int index, String originalUrl) {
+            this.index = index;
+            this.originalUrl = originalUrl;
+        }
+    }
+}
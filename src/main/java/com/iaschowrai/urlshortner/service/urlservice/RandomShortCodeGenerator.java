@@ -0,0 +1,28 @@
+package com.iaschowrai.urlshortner.service.urlservice;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+
+/*
+The original generator: 8 random base62 characters. Collisions are not checked and surface as a unique-constraint
+failure on insert, so it is only kept for deployments that set `url.codes.generator=random`.
+ */
+@Component
+@ConditionalOnProperty(name = "url.codes.generator", havingValue = "random")
+public class RandomShortCodeGenerator implements ShortCodeGenerator {
+
+    private static final int LENGTH = 8;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Override
+    public String nextShortCode() {
+        StringBuilder shortUrl = new StringBuilder(LENGTH);
+        for (int i = 0; i < LENGTH; i++) {
+            shortUrl.append(Base62.ALPHABET.charAt(random.nextInt(Base62.ALPHABET.length())));
+        }
+        return shortUrl.toString();
+    }
+}
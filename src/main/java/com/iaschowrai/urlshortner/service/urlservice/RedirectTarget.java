@@ -0,0 +1,48 @@
+package com.iaschowrai.urlshortner.service.urlservice;
+
+import com.iaschowrai.urlshortner.models.UrlMapping;
+
+/*
+The `RedirectTarget` is the immutable, detached view of a `UrlMapping` that the redirect path needs. It is what the
+`UrlMappingCache` holds, so hot short codes can be resolved without a database round trip and without keeping managed
+JPA entities alive outside of a persistence context.
+ */
+public final class RedirectTarget {
+
+    private final Long id;
+    private final Long userId;
+    private final String shortUrl;
+    private final String originalUrl;
+
+    public RedirectTarget(Long id, Long userId, String shortUrl, String originalUrl) {
+        this.id = id;
+        this.userId = userId;
+        this.shortUrl = shortUrl;
+        this.originalUrl = originalUrl;
+    }
+
+    public static RedirectTarget from(UrlMapping urlMapping) {
+        return new RedirectTarget(
+                urlMapping.getId(),
+                urlMapping.getUser() != null ? urlMapping.getUser().getId() : null,
+                urlMapping.getShortUrl(),
+                urlMapping.getOriginalUrl()
+        );
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getShortUrl() {
+        return shortUrl;
+    }
+
+    public String getOriginalUrl() {
+        return originalUrl;
+    }
+}
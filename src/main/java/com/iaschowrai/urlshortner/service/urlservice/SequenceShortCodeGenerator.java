@@ -0,0 +1,166 @@
+package com.iaschowrai.urlshortner.service.urlservice;
+
+import com.iaschowrai.urlshortner.models.ShortCodeSequence;
+import com.iaschowrai.urlshortner.repository.ShortCodeSequenceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+The `SequenceShortCodeGenerator` turns unique ids into short codes, so codes never collide and never need a retry.
+Ids are leased from the `short_code_sequences` row in blocks of `url.codes.block-size` and handed out from memory with
+a lock-free counter; only exhausting a block costs a database round trip.
+
+Each id is encoded as a fixed-width 7 character base62 code. Legacy random codes are 8 characters long, so the two can
+never clash. Codes are sequential by default; with `url.codes.scramble` enabled the id is first passed through a keyed Feistel permutation of the code
+space (cycle-walked to stay below 62^7), which keeps codes unique while hiding how many links exist and which code
+comes next. The permutation is only as secret as its key, so `url.codes.scramble-key` has no default and startup fails
+without it; it must never change once codes have been issued, or new codes can collide with existing ones.
+ */
+@Component
+@ConditionalOnProperty(name = "url.codes.generator", havingValue = "sequence", matchIfMissing = true)
+public class SequenceShortCodeGenerator implements ShortCodeGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceShortCodeGenerator.class);
+
+    private static final String SEQUENCE_NAME = "short_code";
+    private static final int CODE_LENGTH = 7;
+    private static final long CODE_SPACE = Base62.capacity(CODE_LENGTH);
+
+    private static final int HALF_BITS = 21;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+
+    private final ShortCodeSequenceRepository sequenceRepository;
+    private final TransactionTemplate leaseTransaction;
+    private final int blockSize;
+    private final boolean scramble;
+    private final long[] roundKeys = new long[ROUNDS];
+    private final ReentrantLock leaseLock = new ReentrantLock();
+
+    private volatile Block current;
+
+    public SequenceShortCodeGenerator(ShortCodeSequenceRepository sequenceRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${url.codes.block-size:10000}") int blockSize,
+                                      @Value("${url.codes.scramble:false}") boolean scramble,
+                                      @Value("${url.codes.scramble-key:#{null}}") Long scrambleKey) {
+        this.sequenceRepository = sequenceRepository;
+        this.leaseTransaction = new TransactionTemplate(transactionManager);
+        this.leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+        this.scramble = scramble;
+
+        if (scramble && scrambleKey == null) {
+            throw new IllegalStateException("url.codes.scramble is enabled but url.codes.scramble-key is not set.");
+        }
+        long seed = scramble ? scrambleKey : 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            roundKeys[i] = mix(seed);
+        }
+    }
+
+    @Override
+    public String nextShortCode() {
+        return toShortCode(nextId());
+    }
+
+    // Next unused id; ids are unique across all nodes sharing the database
+    public long nextId() {
+        while (true) {
+            Block block = current;
+            if (block != null) {
+                long id = block.next.getAndIncrement();
+                if (id < block.end) {
+                    return id;
+                }
+            }
+            leaseIfExhausted(block);
+        }
+    }
+
+    public String toShortCode(long id) {
+        if (id < 0 || id >= CODE_SPACE) {
+            throw new IllegalStateException("Short code space exhausted at id " + id);
+        }
+        return Base62.encode(scramble ? permute(id) : id, CODE_LENGTH);
+    }
+
+    private void leaseIfExhausted(Block exhausted) {
+        leaseLock.lock();
+        try {
+            // Another thread may already have replaced the block we saw
+            if (current == exhausted) {
+                current = leaseBlock();
+            }
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    private Block leaseBlock() {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                Block block = leaseTransaction.execute(status -> {
+                    ShortCodeSequence sequence = sequenceRepository.findByName(SEQUENCE_NAME)
+                            .orElseGet(() -> sequenceRepository.saveAndFlush(new ShortCodeSequence(SEQUENCE_NAME, 1)));
+                    long start = sequence.getNextValue();
+                    sequence.setNextValue(start + blockSize);
+                    return new Block(start, start + blockSize);
+                });
+                logger.info("Leased short code ids [{}, {}).", block.start, block.end);
+                return block;
+            } catch (DataIntegrityViolationException e) {
+                // Another node created the sequence row first; read it again
+                if (attempt > 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Keyed Feistel network over 42 bits, cycle-walked so the result stays inside the 7 character code space
+    private long permute(long id) {
+        long value = id;
+        do {
+            long left = value >>> HALF_BITS;
+            long right = value & HALF_MASK;
+            for (int round = 0; round < ROUNDS; round++) {
+                long next = left ^ (mix(right ^ roundKeys[round]) & HALF_MASK);
+                left = right;
+                right = next;
+            }
+            value = (left << HALF_BITS) | right;
+        } while (value >= CODE_SPACE);
+        return value;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Block {
+        private final long start;
+        private final long end;
+        private final AtomicLong next;
+
+        private Block(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.next = new AtomicLong(start);
+        }
+    }
+}
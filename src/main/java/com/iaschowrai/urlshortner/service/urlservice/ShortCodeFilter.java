@@ -0,0 +1,160 @@
+package com.iaschowrai.urlshortner.service.urlservice;
+
+import com.iaschowrai.urlshortner.repository.UrlMappingShards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+The `ShortCodeFilter` is a negative cache for the redirect path: a Bloom filter of every existing short code, so a code
+that was never issued (scanners, typos) is answered with 404 without a database lookup. It is built at startup from a
+streaming scan of `url_mappings` on every database that holds it (see `UrlMappingShards`), every newly created code is
+added to it, and it is rebuilt every `url.bloom.rebuild-interval-ms` so that its size follows the table and deleted
+codes drop out. It is not built while shards are being rebalanced: a row moving between databases during the scan
+could be missed, and the filter must never reject an existing code.
+
+Until the first build completes every code is reported as possibly present. While a rebuild is scanning, new codes are
+added to both the current and the next filter, so none are lost when the two are swapped. Codes created by other
+application instances only become known here at the next rebuild, and until then get a 404 from this node. The filter
+is therefore off by default (`url.bloom.enabled`) and only meant for single-instance deployments.
+ */
+@Component
+public class ShortCodeFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShortCodeFilter.class);
+
+    private static final String SELECT_SHORT_CODES = "SELECT short_url FROM url_mappings";
+    private static final int STREAMING_FETCH_ROWS = 1000;
+
+    private final UrlMappingShards urlMappingShards;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter next;
+
+    private final Counter rejectedCounter;
+    private final Counter falsePositiveCounter;
+
+    public ShortCodeFilter(UrlMappingShards urlMappingShards,
+                           MeterRegistry meterRegistry,
+                           @Value("${url.bloom.enabled:false}") boolean enabled,
+                           @Value("${url.bloom.expected-insertions:10000000}") long expectedInsertions,
+                           @Value("${url.bloom.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.urlMappingShards = urlMappingShards;
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+
+        Gauge.builder("url.bloom.expected.fpp", this, filter -> filter.current == null ? 1.0 : filter.current.expectedFalsePositiveProbability())
+                .description("Expected false-positive probability of the short code filter at its current fill")
+                .register(meterRegistry);
+        Gauge.builder("url.bloom.memory", this, filter -> filter.current == null ? 0 : filter.current.sizeInBytes())
+                .description("Memory used by the short code filter's bit array")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("url.bloom.codes", this, filter -> filter.current == null ? 0 : filter.current.insertions())
+                .description("Short codes added to the filter since it was built")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("url.bloom.rejected")
+                .description("Lookups answered as definitely absent without touching the database")
+                .register(meterRegistry);
+        this.falsePositiveCounter = Counter.builder("url.bloom.false.positives")
+                .description("Lookups the filter let through that the database did not find")
+                .register(meterRegistry);
+    }
+
+    // False only if the code definitely does not exist
+    public boolean mightContain(String shortUrl) {
+        BloomFilter filter = current;
+        if (filter == null || filter.mightContain(shortUrl)) {
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    // Must be called once the row for the code is committed and before the code is handed out
+    public void put(String shortUrl) {
+        // Read the filter being built first: if it is already gone, `current` is the one that replaced it
+        BloomFilter building = next;
+        if (building != null) {
+            building.put(shortUrl);
+        }
+        BloomFilter filter = current;
+        if (filter != null) {
+            filter.put(shortUrl);
+        }
+    }
+
+    // Called when the filter let a code through but the database had no row for it
+    public void recordFalsePositive() {
+        if (current != null) {
+            falsePositiveCounter.increment();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${url.bloom.rebuild-interval-ms:3600000}",
+            initialDelayString = "${url.bloom.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        if (!enabled || urlMappingShards.isRebalancing() || !rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            long rows = 0;
+            for (UrlMappingShards.Shard database : urlMappingShards.databases()) {
+                Long count = database.jdbcTemplate().queryForObject("SELECT COUNT(*) FROM url_mappings", Long.class);
+                rows += count == null ? 0 : count;
+            }
+            // Leave room for the codes created until the next rebuild
+            BloomFilter building = new BloomFilter(Math.max(expectedInsertions, 2 * rows), falsePositiveProbability);
+            next = building;
+
+            // Stream the codes off a server-side cursor so the scan does not hold the table in memory
+            for (UrlMappingShards.Shard database : urlMappingShards.databases()) {
+                database.jdbcTemplate().query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(SELECT_SHORT_CODES,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(streamingFetchSize(connection));
+                    return statement;
+                }, (ResultSet resultSet) -> building.put(resultSet.getString(1)));
+            }
+
+            current = building;
+            logger.info("Built short code filter with {} codes ({} bytes) in {} ms.",
+                    building.insertions(), building.sizeInBytes(), System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            logger.error("Failed to build the short code filter, keeping the previous one: {}", e.getMessage());
+        } finally {
+            next = null;
+            rebuildLock.unlock();
+        }
+    }
+
+    // MySQL Connector/J only streams with the Integer.MIN_VALUE sentinel, which other drivers reject as a row count
+    private static int streamingFetchSize(Connection connection) throws SQLException {
+        boolean mysql = "MySQL".equals(connection.getMetaData().getDatabaseProductName());
+        return mysql ? Integer.MIN_VALUE : STREAMING_FETCH_ROWS;
+    }
+}
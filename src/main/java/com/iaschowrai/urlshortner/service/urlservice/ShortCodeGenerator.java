@@ -0,0 +1,20 @@
+package com.iaschowrai.urlshortner.service.urlservice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Strategy for producing short codes. The implementation is selected with `url.codes.generator`.
+ */
+public interface ShortCodeGenerator {
+
+    String nextShortCode();
+
+    default List<String> nextShortCodes(int count) {
+        List<String> shortCodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            shortCodes.add(nextShortCode());
+        }
+        return shortCodes;
+    }
+}
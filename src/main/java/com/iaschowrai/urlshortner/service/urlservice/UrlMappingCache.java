@@ -0,0 +1,75 @@
+package com.iaschowrai.urlshortner.service.urlservice;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/*
+The `UrlMappingCache` is a bounded, in-process read-through cache from short code to `RedirectTarget`. Caffeine evicts
+with W-TinyLFU, which keeps the small set of hot links resident even when scanners touch many cold codes. Size and TTL
+come from `url.cache.*`; hit, miss and eviction counts are published to Micrometer under the `cache` meters with
+`cache=redirect`.
+ */
+@Component
+public class UrlMappingCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UrlMappingCache.class);
+    private static final String CACHE_NAME = "redirect";
+
+    private final Cache<String, RedirectTarget> cache;
+
+    public UrlMappingCache(@Value("${url.cache.maximum-size:100000}") long maximumSize,
+                           @Value("${url.cache.ttl-seconds:600}") long ttlSeconds,
+                           MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        logger.info("Configured redirect cache with maximum size {} and TTL {}s.", maximumSize, ttlSeconds);
+    }
+
+    /**
+     * Returns the cached target, loading it on a miss. A null result from the loader is not cached.
+     * The loader runs outside the cache's internal locks: a database lookup inside Caffeine's compute would hold a
+     * monitor and pin the carrier thread when running on virtual threads. Concurrent misses for the same code may
+     * therefore load it more than once.
+     */
+    public RedirectTarget get(String shortUrl, Function<String, RedirectTarget> loader) {
+        RedirectTarget target = cache.getIfPresent(shortUrl);
+        if (target == null) {
+            target = loader.apply(shortUrl);
+            if (target != null) {
+                cache.put(shortUrl, target);
+            }
+        }
+        return target;
+    }
+
+    public void put(RedirectTarget target) {
+        cache.put(target.getShortUrl(), target);
+    }
+
+    // Must be called whenever the mapping behind a short code is changed or removed
+    public void invalidate(String shortUrl) {
+        cache.invalidate(shortUrl);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -1,35 +1,112 @@
 package com.iaschowrai.urlshortner.service.urlservice;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iaschowrai.urlshortner.dtos.AudienceDTO;
 import com.iaschowrai.urlshortner.dtos.ClickEventDTO;
+import com.iaschowrai.urlshortner.dtos.ClickQueryResultDTO;
+import com.iaschowrai.urlshortner.dtos.EdgeClickDTO;
 import com.iaschowrai.urlshortner.dtos.UrlMappingDTO;
-import com.iaschowrai.urlshortner.models.ClickEvent;
-import com.iaschowrai.urlshortner.models.UrlMapping;
+import com.iaschowrai.urlshortner.dtos.UrlMappingPageDTO;
 import com.iaschowrai.urlshortner.models.User;
 import com.iaschowrai.urlshortner.repository.ClickEventRepository;
-import com.iaschowrai.urlshortner.repository.UrlMappingRepository;
+import com.iaschowrai.urlshortner.repository.ReadYourWrites;
+import com.iaschowrai.urlshortner.repository.UrlMappingStore;
+import com.iaschowrai.urlshortner.service.clicklog.ClickDimension;
+import com.iaschowrai.urlshortner.service.clicklog.ClickGroupBy;
+import com.iaschowrai.urlshortner.service.clicklog.ClickQuery;
+import com.iaschowrai.urlshortner.service.clicklog.ClickQueryEngine;
+import com.iaschowrai.urlshortner.service.clicklog.ClickSegmentLog;
+import com.iaschowrai.urlshortner.service.clickservice.ClickCounter;
+import com.iaschowrai.urlshortner.service.clickservice.ClickEventRecorder;
+import com.iaschowrai.urlshortner.service.clickservice.ClickRecord;
+import com.iaschowrai.urlshortner.service.clickservice.ClickRollupService;
+import com.iaschowrai.urlshortner.service.clickservice.ClickStreamHub;
+import com.iaschowrai.urlshortner.service.clickservice.DeletedUrlMappings;
+import com.iaschowrai.urlshortner.service.sketch.ClickSketchService;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.security.SecureRandom;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class UrlMappingService {
 
     private static final Logger logger = LoggerFactory.getLogger(UrlMappingService.class);
-    private final UrlMappingRepository urlMappingRepository;
+
+    // Mapping ids per IN list when counting a user's clicks from click_events
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    private final UrlMappingStore urlMappingStore;
     private final ClickEventRepository clickEventRepository;
-    public UrlMappingService(UrlMappingRepository urlMappingRepository, ClickEventRepository clickEventRepository) {
-        this.urlMappingRepository = urlMappingRepository;
+    private final UrlMappingCache urlMappingCache;
+    private final ClickEventRecorder clickEventRecorder;
+    private final ClickCounter clickCounter;
+    private final DeletedUrlMappings deletedUrlMappings;
+    private final ClickRollupService clickRollupService;
+    private final AnalyticsSource analyticsSource;
+    private final ShortCodeGenerator shortCodeGenerator;
+    private final ShortCodeFilter shortCodeFilter;
+    private final ClickSegmentLog clickSegmentLog;
+    private final ClickQueryEngine clickQueryEngine;
+    private final ClickSketchService clickSketchService;
+    private final ClickStreamHub clickStreamHub;
+    private final ReadYourWrites readYourWrites;
+    private final ObjectMapper objectMapper;
+    private final int maxPageSize;
+    private final int maxQueryLimit;
+    public UrlMappingService(UrlMappingStore urlMappingStore, ClickEventRepository clickEventRepository,
+                             UrlMappingCache urlMappingCache, ClickEventRecorder clickEventRecorder,
+                             ClickCounter clickCounter, DeletedUrlMappings deletedUrlMappings,
+                             ClickRollupService clickRollupService,
+                             @Value("${url.analytics.source:ROLLUPS}") AnalyticsSource analyticsSource,
+                             ShortCodeGenerator shortCodeGenerator,
+                             ShortCodeFilter shortCodeFilter,
+                             ClickSegmentLog clickSegmentLog,
+                             ClickQueryEngine clickQueryEngine,
+                             ClickSketchService clickSketchService,
+                             ClickStreamHub clickStreamHub,
+                             ReadYourWrites readYourWrites,
+                             ObjectMapper objectMapper,
+                             @Value("${url.my-urls.max-page-size:500}") int maxPageSize,
+                             @Value("${url.analytics.query.max-limit:1000}") int maxQueryLimit) {
+        this.urlMappingStore = urlMappingStore;
         this.clickEventRepository = clickEventRepository;
+        this.urlMappingCache = urlMappingCache;
+        this.clickEventRecorder = clickEventRecorder;
+        this.clickCounter = clickCounter;
+        this.deletedUrlMappings = deletedUrlMappings;
+        this.clickRollupService = clickRollupService;
+        this.analyticsSource = analyticsSource;
+        this.shortCodeGenerator = shortCodeGenerator;
+        this.shortCodeFilter = shortCodeFilter;
+        this.clickSegmentLog = clickSegmentLog;
+        this.clickQueryEngine = clickQueryEngine;
+        this.clickSketchService = clickSketchService;
+        this.clickStreamHub = clickStreamHub;
+        this.readYourWrites = readYourWrites;
+        this.objectMapper = objectMapper;
+        this.maxPageSize = maxPageSize;
+        this.maxQueryLimit = maxQueryLimit;
     }
 
+    @Timed(value = "url.shorten", description = "Time to create a short URL", histogram = true)
     public UrlMappingDTO createShortUrl(String originalUrl, User user) {
         // Validate Inputs
         if (originalUrl == null || originalUrl.trim().isEmpty()) {
@@ -42,19 +119,18 @@ public class UrlMappingService {
         }
 
         try {
-            String shortUrl = generateShortUrl();
-            logger.info("Generated short URL: {}", shortUrl);
-            UrlMapping urlMapping = new UrlMapping();
-            urlMapping.setOriginalUrl(originalUrl);
-            urlMapping.setShortUrl(shortUrl);
-            urlMapping.setUser(user);
-            urlMapping.setCreatedDate(LocalDateTime.now());
+            String shortUrl = shortCodeGenerator.nextShortCode();
+            logger.debug("Generated short URL: {}", shortUrl);
 
             // Save to Database
-            UrlMapping savedUrlMapping = urlMappingRepository.save(urlMapping);
-            logger.info("Successfully saved URL mapping: {}", savedUrlMapping.getId());
+            UrlMappingDTO savedUrlMapping = urlMappingStore.create(originalUrl, shortUrl, user);
+            logger.debug("Successfully saved URL mapping: {}", savedUrlMapping.getId());
+            urlMappingCache.invalidate(shortUrl);
+            shortCodeFilter.put(shortUrl);
+            readYourWrites.markWritten(ReadYourWrites.shortUrlKey(shortUrl));
+            readYourWrites.markWritten(ReadYourWrites.userKey(user.getId()));
 
-            return convertToDto(savedUrlMapping);
+            return completeDto(savedUrlMapping, user);
 
         } catch (Exception e) {
             logger.error("Error occurred while creating short URL: {}", e.getMessage());
@@ -62,33 +138,44 @@ public class UrlMappingService {
         }
     }
 
-    private UrlMappingDTO convertToDto(UrlMapping urlMapping) {
-        if (urlMapping == null) {
-            logger.error("Attempted to convert a null UrlMapping to DTO.");
-            throw new IllegalArgumentException("UrlMapping cannot be null.");
+    /**
+     * Deletes one of the user's short URLs with its clicks and click rollups, using one bulk DELETE per table instead
+     * of loading and cascading to every click. Returns false if the user has no short URL with that code.
+     */
+    @Transactional
+    public boolean deleteShortUrl(String shortUrl, User user) {
+        RedirectTarget target = urlMappingStore.findRedirectTargetUncached(shortUrl);
+        if (target == null || !user.getId().equals(target.getUserId())) {
+            return false;
         }
 
-        return new UrlMappingDTO(
-                urlMapping.getId(),
-                urlMapping.getOriginalUrl(),
-                urlMapping.getShortUrl(),
-                urlMapping.getClickCount(),
-                urlMapping.getCreatedDate(),
-                Optional.ofNullable(urlMapping.getUser()).map(User::getUsername).orElse("Unknown")
-        );
-    }
+        Long urlMappingId = target.getId();
+        // Before the bulk deletes, so clicks still queued for the mapping are not written after them
+        deletedUrlMappings.add(urlMappingId);
+        clickCounter.discard(urlMappingId);
+        int clicks = clickEventRepository.deleteByUrlMappingId(urlMappingId);
+        clickRollupService.deleteRollups(urlMappingId);
+        clickSketchService.deleteSketches(urlMappingId);
+        urlMappingStore.deleteMapping(urlMappingId, shortUrl);
+        readYourWrites.markWritten(ReadYourWrites.shortUrlKey(shortUrl));
+        readYourWrites.markWritten(ReadYourWrites.userKey(user.getId()));
 
-    private String generateShortUrl() {
-        String characters = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-        SecureRandom random = new SecureRandom();
-        StringBuilder shortUrl = new StringBuilder(8);
+        // Evict once the delete is visible, so a concurrent redirect cannot cache the row again in between
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                urlMappingCache.invalidate(shortUrl);
+            }
 
-        for (int i = 0; i < 8; i++) {
-            shortUrl.append(characters.charAt(random.nextInt(characters.length())));
-        }
-
-        logger.debug("Generated short URL: {}", shortUrl);
-        return shortUrl.toString();
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    deletedUrlMappings.remove(urlMappingId);
+                }
+            }
+        });
+        logger.info("Deleted URL mapping {} with {} click events.", urlMappingId, clicks);
+        return true;
     }
 
     public List<UrlMappingDTO> getUrlsByUser(User user) {
@@ -97,27 +184,66 @@ public class UrlMappingService {
             throw new IllegalArgumentException("User cannot be null.");
         }
 
-        return urlMappingRepository.findByUser(user)
+        return urlMappingStore.findDtosByUserId(user.getId())
+                .stream()
+                .map(urlMappingDto -> completeDto(urlMappingDto, user))
+                .toList();
+    }
+
+    /**
+     * Returns one page of the user's URLs, newest first, using keyset pagination on the mapping id.
+     * The cursor is the nextCursor of the previous page (null for the first page); the page size is capped.
+     */
+    public UrlMappingPageDTO getUrlPageByUser(User user, Long cursor, int size) {
+        if (user == null || user.getUsername() == null) {
+            logger.error("Failed to get URL page: User is null or invalid.");
+            throw new IllegalArgumentException("User cannot be null.");
+        }
+
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        List<UrlMappingDTO> items = urlMappingStore
+                .findDtoPageByUserId(user.getId(), cursor == null ? Long.MAX_VALUE : cursor, pageSize)
                 .stream()
-                .map(this::convertToDto)
+                .map(urlMappingDto -> completeDto(urlMappingDto, user))
                 .toList();
+
+        Long nextCursor = items.size() == pageSize ? items.get(items.size() - 1).getId() : null;
+        return new UrlMappingPageDTO(items, nextCursor);
     }
 
+    /**
+     * Writes all of the user's URLs as newline-delimited JSON, one keyset page at a time.
+     * Memory use does not depend on how many URLs the user has, and no transaction or connection is held while a slow
+     * client reads the response.
+     */
+    public void exportUrlsByUser(User user, OutputStream outputStream) throws IOException {
+        try (Stream<UrlMappingDTO> rows = urlMappingStore.streamDtosByUserId(user.getId())) {
+            Iterator<UrlMappingDTO> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                outputStream.write(objectMapper.writeValueAsBytes(completeDto(iterator.next(), user)));
+                outputStream.write('\n');
+            }
+        }
+        outputStream.flush();
+    }
+
+    // Fills in what the projection queries leave out: the owner's name and clicks not yet flushed
+    private UrlMappingDTO completeDto(UrlMappingDTO urlMappingDto, User user) {
+        urlMappingDto.setUsername(user.getUsername());
+        urlMappingDto.setClickCount(urlMappingDto.getClickCount() + (int) clickCounter.getPendingDelta(urlMappingDto.getId()));
+        return urlMappingDto;
+    }
+
+    @Timed(value = "url.analytics", extraTags = {"query", "url"}, description = "Time to load click analytics", histogram = true)
     public List<ClickEventDTO> getClickEventsByDate(String shortUrl, LocalDateTime start, LocalDateTime end) {
-        UrlMapping urlMapping = urlMappingRepository.findByShortUrl(shortUrl);
-        if(urlMapping == null){
+        RedirectTarget target = resolveShortUrl(shortUrl);
+        if(target == null){
             logger.warn("No URL mapping found for short URL: {}", shortUrl);
             return List.of();
+        }else if(analyticsSource == AnalyticsSource.EVENTS){
+            return clickEventRepository.countClicksPerDay(target.getId(), start, end);
         }else{
-            return clickEventRepository
-                    .findByUrlMappingAndClickDateBetween(urlMapping,start,end)
-                    .stream()
-                    .collect(
-                            Collectors.groupingBy(
-                                    click -> click.getClickDate().toLocalDate()
-                                    ,Collectors.counting()
-                            )
-                    )
+            return clickRollupService.getDailyClicks(target.getId(), start, end)
                     .entrySet()
                     .stream().map(
                             entry -> {
@@ -131,39 +257,152 @@ public class UrlMappingService {
         }
     }
 
+    /**
+     * Returns the clicks on one of the user's short URLs within the date range grouped by referrer host, country,
+     * browser or device, largest first. Read from the click segment log, so only clicks recorded since it was enabled
+     * are counted. Returns null if the user has no short URL with that code.
+     */
+    @Timed(value = "url.analytics", extraTags = {"query", "breakdown"}, description = "Time to load click analytics", histogram = true)
+    public Map<String, Long> getClickBreakdown(String shortUrl, User user, ClickDimension dimension,
+                                               LocalDateTime start, LocalDateTime end) {
+        RedirectTarget target = resolveShortUrl(shortUrl);
+        if (target == null || !user.getId().equals(target.getUserId())) {
+            logger.warn("No URL mapping found for short URL: {}", shortUrl);
+            return null;
+        }
+        return clickSegmentLog.countBy(dimension, List.of(target.getId()), null, start, end);
+    }
+
+    /**
+     * Runs a group-by query over the user's clicks in the click segment log. An empty shortUrls list means all of the
+     * user's links; codes that do not exist or belong to someone else match nothing. The limit is capped.
+     */
+    @Timed(value = "url.analytics", extraTags = {"query", "engine"}, description = "Time to load click analytics", histogram = true)
+    public ClickQueryResultDTO queryClicks(User user, List<String> shortUrls, List<ClickGroupBy> groupBy,
+                                           LocalDateTime start, LocalDateTime end, int limit) {
+        List<Long> urlMappingIds = null;
+        if (shortUrls != null && !shortUrls.isEmpty()) {
+            urlMappingIds = shortUrls.stream()
+                    .map(this::resolveShortUrl)
+                    .filter(target -> target != null && user.getId().equals(target.getUserId()))
+                    .map(RedirectTarget::getId)
+                    .distinct()
+                    .toList();
+            if (urlMappingIds.isEmpty()) {
+                return new ClickQueryResultDTO(groupBy.stream().map(field -> field.name().toLowerCase()).toList(), List.of(), 0);
+            }
+        }
+        int cappedLimit = Math.max(1, Math.min(limit, maxQueryLimit));
+        return clickQueryEngine.query(new ClickQuery(groupBy, urlMappingIds, user.getId(), start, end, cappedLimit));
+    }
+
+    /**
+     * Returns the approximate unique visitors and top referrers of one of the user's short URLs between two days,
+     * read from the daily sketches. Returns null if the user has no short URL with that code.
+     */
+    @Timed(value = "url.analytics", extraTags = {"query", "audience"}, description = "Time to load click analytics", histogram = true)
+    public AudienceDTO getAudience(String shortUrl, User user, LocalDate start, LocalDate end, int topReferrers) {
+        RedirectTarget target = resolveShortUrl(shortUrl);
+        if (target == null || !user.getId().equals(target.getUserId())) {
+            logger.warn("No URL mapping found for short URL: {}", shortUrl);
+            return null;
+        }
+        return clickSketchService.getAudience(target.getId(), start, end, Math.max(1, Math.min(topReferrers, maxQueryLimit)));
+    }
+
+    @Timed(value = "url.analytics", extraTags = {"query", "user"}, description = "Time to load click analytics", histogram = true)
     public Map<LocalDate, Long> getTotalClicksByUserAndDate(User user, LocalDate start, LocalDate end) {
+        if (analyticsSource == AnalyticsSource.EVENTS) {
+            // Let the database group by day; only (date, count) tuples cross the wire. The user's links are looked up
+            // in the store and passed in chunks, since url_mappings may not be on the database holding click_events
+            List<Long> urlMappingIds = urlMappingStore.findIdsByUserId(user.getId());
+            Map<LocalDate, Long> totals = new TreeMap<>();
+            for (int from = 0; from < urlMappingIds.size(); from += ID_CHUNK_SIZE) {
+                List<Long> chunk = urlMappingIds.subList(from, Math.min(from + ID_CHUNK_SIZE, urlMappingIds.size()));
+                clickEventRepository
+                        .countClicksPerDayByUrlMappingIds(chunk, start.atStartOfDay(), end.plusDays(1).atStartOfDay())
+                        .forEach(day -> totals.merge(day.getClickDate(), day.getCount(), Long::sum));
+            }
+            return totals;
+        }
+        // Read the per-user daily rollup; one row per day regardless of the number of links or clicks
+        return clickRollupService.getUserDailyClicks(user.getId(), start, end);
+    }
+
+    public RedirectTarget getOriginalUrl(String shortUrl) {
+        return getOriginalUrl(shortUrl, null, null, null);
+    }
 
-        // Find all URL mappings by the user
-        List<UrlMapping> urlMappings = urlMappingRepository.findByUser(user);
-
-        // Fetch all ClickEvents in the given date range for these URL mappings
-        List<ClickEvent> clickEvents = clickEventRepository.findByUrlMappingInAndClickDateBetween(urlMappings, start.atStartOfDay(), end.plusDays(1).atStartOfDay());
-      return clickEvents
-              .stream()
-              .collect(
-                      Collectors.groupingBy(
-                              click -> click.getClickDate()
-                                      .toLocalDate(), Collectors.counting()
-                      )
-              );
-    }
-
-    public UrlMapping getOriginalUrl(String shortUrl) {
-        UrlMapping urlMapping = urlMappingRepository.findByShortUrl(shortUrl);
-        if (urlMapping == null) {
-            logger.warn("Short URL not found: {}", shortUrl);
+    /**
+     * Resolves a short URL and records the click with the request's Referer, User-Agent and client address.
+     * The raw values are only queued here; they are parsed on the click writer thread.
+     */
+    @Timed(value = "url.redirect", description = "Time to resolve a short URL for a redirect", histogram = true)
+    public RedirectTarget getOriginalUrl(String shortUrl, String referrer, String userAgent, String remoteAddress) {
+        // Codes that were never issued are rejected by the filter without a cache or database lookup
+        if (!shortCodeFilter.mightContain(shortUrl)) {
+            logger.debug("Short URL rejected by filter: {}", shortUrl);
             return null;
-        }else{
-            urlMapping.setClickCount(urlMapping.getClickCount()+1);
-            urlMappingRepository.save(urlMapping);
+        }
+
+        RedirectTarget target = urlMappingCache.get(shortUrl, this::loadRedirectTarget);
+        if (target == null) {
+            shortCodeFilter.recordFalsePositive();
+            logger.debug("Short URL not found: {}", shortUrl);
+            return null;
+        }
+
+        recordClick(shortUrl, new ClickRecord(target.getId(), target.getUserId(), LocalDateTime.now(),
+                referrer, userAgent, remoteAddress));
+        return target;
+    }
+
+    /**
+     * Records clicks on redirects served by the edge tier, the same way as clicks on local redirects.
+     * Returns the ids of the clicked mappings that were deleted on this node, so the edge can evict them from its cache.
+     */
+    public List<Long> recordEdgeClicks(List<EdgeClickDTO> clicks) {
+        List<Long> deleted = new ArrayList<>();
+        for (EdgeClickDTO click : clicks) {
+            if (deletedUrlMappings.contains(click.getUrlMappingId())) {
+                deleted.add(click.getUrlMappingId());
+                continue;
+            }
+            recordClick(click.getShortUrl(), new ClickRecord(click.getUrlMappingId(), click.getUserId(),
+                    click.getClickDate(), click.getReferrer(), click.getUserAgent(), click.getRemoteAddress()));
+        }
+        return deleted.stream().distinct().toList();
+    }
+
+    private void recordClick(String shortUrl, ClickRecord clickRecord) {
+        // Count the click in memory and queue the click event; both are written to the database in batches
+        clickCounter.increment(clickRecord.getUrlMappingId());
+        clickEventRecorder.record(clickRecord);
+        // Open dashboard streams of the owner get the click with the next coalesced push
+        clickStreamHub.publish(clickRecord.getUserId(), shortUrl);
+    }
+
+    // The redirect path: may be answered from the second-level cache, which loads the mapping entity on a miss
+    private RedirectTarget loadRedirectTarget(String shortUrl) {
+        return loadTarget(shortUrl, urlMappingStore::findRedirectTarget);
+    }
+
+    // The analytics endpoints only need the id and owner, so they resolve codes with the projection and load no entity
+    private RedirectTarget resolveShortUrl(String shortUrl) {
+        return urlMappingCache.get(shortUrl, code -> loadTarget(code, urlMappingStore::findRedirectTargetUncached));
+    }
 
-            // Record Click Events
-            ClickEvent clickEvent = new ClickEvent();
-            clickEvent.setClickDate(LocalDateTime.now());
-            clickEvent.setUrlMapping(urlMapping);
-            clickEventRepository.save(clickEvent);
+    /*
+    Codes written on this node within the read-your-writes window are read from the primary; a replica miss is checked
+    once more on the primary, since the code may have been created on another node and not replicated yet. With the
+    short code filter enabled, such a code never gets here: the filter of this node does not know it yet.
+     */
+    private RedirectTarget loadTarget(String shortUrl, Function<String, RedirectTarget> finder) {
+        String key = ReadYourWrites.shortUrlKey(shortUrl);
+        RedirectTarget target = readYourWrites.read(key, () -> finder.apply(shortUrl));
+        if (target == null && readYourWrites.isEnabled() && !readYourWrites.isRecentlyWritten(key)) {
+            target = readYourWrites.readFromPrimary(() -> finder.apply(shortUrl));
         }
-        logger.info("Redirecting to original URL: {} with updated click count: {}", urlMapping.getOriginalUrl(), urlMapping.getClickCount());
-        return urlMapping;
+        return target;
     }
 }
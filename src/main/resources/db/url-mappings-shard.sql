@@ -0,0 +1,13 @@
+-- url_mappings on a shard. Ids are allocated by the application (see ShardedUrlMappingStore), so they stay unique
+-- across shards and survive moves between them; the owner is kept as a plain column since users live elsewhere.
+CREATE TABLE IF NOT EXISTS url_mappings (
+    id BIGINT NOT NULL,
+    original_url VARCHAR(255) NOT NULL,
+    short_url VARCHAR(255) NOT NULL,
+    click_count INT NOT NULL DEFAULT 0,
+    created_date DATETIME(6) NOT NULL,
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_url_mappings_short_url (short_url),
+    KEY idx_url_mappings_user_id (user_id, id)
+);
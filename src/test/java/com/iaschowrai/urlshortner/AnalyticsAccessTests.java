@@ -0,0 +1,92 @@
+package com.iaschowrai.urlshortner;
+
+import com.iaschowrai.urlshortner.models.UrlMapping;
+import com.iaschowrai.urlshortner.models.User;
+import com.iaschowrai.urlshortner.repository.UrlMappingRepository;
+import com.iaschowrai.urlshortner.repository.UserRepository;
+import com.iaschowrai.urlshortner.service.UserDetailsImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+Per-link analytics may only be read by the owner of the link; anyone else gets the same 404 as for a code that does not
+exist, so codes of other users cannot be probed either.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AnalyticsAccessTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UrlMappingRepository urlMappingRepository;
+
+    private UserDetailsImpl owner;
+    private UserDetailsImpl stranger;
+    private String shortUrl;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = Long.toString(System.nanoTime(), 36);
+        User ownerUser = saveUser("owner-" + suffix);
+        owner = UserDetailsImpl.build(ownerUser);
+        stranger = UserDetailsImpl.build(saveUser("stranger-" + suffix));
+
+        UrlMapping urlMapping = new UrlMapping();
+        urlMapping.setOriginalUrl("https://example.com/private");
+        urlMapping.setShortUrl("a" + suffix);
+        urlMapping.setUser(ownerUser);
+        urlMapping.setCreatedDate(LocalDateTime.now());
+        shortUrl = urlMappingRepository.save(urlMapping).getShortUrl();
+    }
+
+    @Test
+    void breakdownIsOnlyVisibleToTheOwner() throws Exception {
+        mockMvc.perform(get("/api/urls/analytics/" + shortUrl + "/breakdown")
+                        .param("dimension", "referrer")
+                        .param("startDate", "2024-01-01T00:00:00")
+                        .param("endDate", "2024-01-31T00:00:00")
+                        .with(user(owner)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/urls/analytics/" + shortUrl + "/breakdown")
+                        .param("dimension", "referrer")
+                        .param("startDate", "2024-01-01T00:00:00")
+                        .param("endDate", "2024-01-31T00:00:00")
+                        .with(user(stranger)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void audienceIsOnlyVisibleToTheOwner() throws Exception {
+        mockMvc.perform(get("/api/urls/analytics/" + shortUrl + "/audience")
+                        .param("startDate", "2024-01-01")
+                        .param("endDate", "2024-01-31")
+                        .with(user(stranger)))
+                .andExpect(status().isNotFound());
+    }
+
+    private User saveUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("unused");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,79 @@
+package com.iaschowrai.urlshortner;
+
+import com.iaschowrai.urlshortner.models.User;
+import com.iaschowrai.urlshortner.repository.UserRepository;
+import com.iaschowrai.urlshortner.service.UserDetailsImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+Malformed bulk bodies: rejected with 400 while nothing has been written yet, and answered with a well-formed array that
+ends in an error entry once results are streaming.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BulkShortenTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private UserDetailsImpl owner;
+
+    @BeforeEach
+    void setUp() {
+        String username = "bulk-" + Long.toString(System.nanoTime(), 36);
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("unused");
+        owner = UserDetailsImpl.build(userRepository.save(user));
+    }
+
+    @Test
+    void bodyThatIsNotJsonIsRejected() throws Exception {
+        mockMvc.perform(post("/api/urls/shorten/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("not json")
+                        .with(user(owner)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void bodyThatIsNotAnArrayIsRejected() throws Exception {
+        mockMvc.perform(post("/api/urls/shorten/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"originalUrl\": \"https://example.com\"}")
+                        .with(user(owner)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void malformedItemClosesTheArrayWithAnError() throws Exception {
+        mockMvc.perform(post("/api/urls/shorten/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"https://example.com/a\", {\"originalUrl\": }]")
+                        .with(user(owner)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].shortUrl").exists())
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].error", startsWith("Malformed JSON")));
+    }
+}
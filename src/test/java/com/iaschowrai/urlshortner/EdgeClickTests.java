@@ -0,0 +1,81 @@
+package com.iaschowrai.urlshortner;
+
+import com.iaschowrai.urlshortner.controller.EdgeClickController;
+import com.iaschowrai.urlshortner.service.clickservice.ClickCounter;
+import com.iaschowrai.urlshortner.service.clickservice.DeletedUrlMappings;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+Clicks forwarded by the edge tier are recorded like local ones, only with the shared token, and deleted mappings are
+reported back instead of being counted.
+ */
+@SpringBootTest(properties = "url.edge.ingest-token=edge-secret")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EdgeClickTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ClickCounter clickCounter;
+
+    @Autowired
+    private DeletedUrlMappings deletedUrlMappings;
+
+    @Test
+    void clicksWithoutTheTokenAreRejected() throws Exception {
+        mockMvc.perform(post("/internal/edge/clicks")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(clicks(1001L))
+                        .header(EdgeClickController.TOKEN_HEADER, "wrong"))
+                .andExpect(status().isUnauthorized());
+
+        assertThat(clickCounter.getPendingDelta(1001L)).isZero();
+    }
+
+    @Test
+    void aBlankTokenFailsStartup() {
+        assertThatThrownBy(() -> new EdgeClickController(null, " "))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("url.edge.ingest-token");
+    }
+
+    @Test
+    void forwardedClicksAreCountedAndDeletedMappingsReported() throws Exception {
+        deletedUrlMappings.add(1003L);
+
+        mockMvc.perform(post("/internal/edge/clicks")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(clicks(1002L, 1003L))
+                        .header(EdgeClickController.TOKEN_HEADER, "edge-secret"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[1003]"));
+
+        assertThat(clickCounter.getPendingDelta(1002L)).isEqualTo(1);
+        assertThat(clickCounter.getPendingDelta(1003L)).isZero();
+    }
+
+    private static String clicks(Long... urlMappingIds) {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < urlMappingIds.length; i++) {
+            body.append(i > 0 ? "," : "")
+                    .append("{\"shortUrl\":\"e").append(urlMappingIds[i])
+                    .append("\",\"urlMappingId\":").append(urlMappingIds[i])
+                    .append(",\"userId\":1,\"clickDate\":\"2024-01-01T10:00:00\",\"userAgent\":\"Mozilla/5.0\"}");
+        }
+        return body.append("]").toString();
+    }
+}
@@ -0,0 +1,242 @@
+package com.iaschowrai.urlshortner;
+
+import com.iaschowrai.urlshortner.models.ClickEvent;
+import com.iaschowrai.urlshortner.models.UrlMapping;
+import com.iaschowrai.urlshortner.models.User;
+import com.iaschowrai.urlshortner.repository.UrlMappingRepository;
+import com.iaschowrai.urlshortner.repository.UserRepository;
+import com.iaschowrai.urlshortner.service.UserDetailsImpl;
+import com.iaschowrai.urlshortner.service.urlservice.UrlMappingService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+Guards the fetch plan of each endpoint with Hibernate statistics: the number of JDBC statements Hibernate prepares per
+request, and which entities it loads. Every user owns LINKS short URLs, so an N+1 pattern shows up as a statement count
+that grows with LINKS rather than as a slightly slower test. Work done through JdbcTemplate is not counted.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class QueryCountTests {
+
+    private static final int LINKS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UrlMappingRepository urlMappingRepository;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private UrlMappingService urlMappingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+    private User owner;
+    private UserDetailsImpl principal;
+    private List<String> shortUrls;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        String suffix = Long.toString(System.nanoTime(), 36);
+        owner = new User();
+        owner.setUsername("owner-" + suffix);
+        owner.setEmail("owner-" + suffix + "@example.com");
+        owner.setPassword("unused");
+        owner = userRepository.save(owner);
+
+        shortUrls = new ArrayList<>();
+        for (int i = 0; i < LINKS; i++) {
+            UrlMapping urlMapping = new UrlMapping();
+            urlMapping.setOriginalUrl("https://example.com/" + i);
+            urlMapping.setShortUrl("q" + suffix + i);
+            urlMapping.setUser(owner);
+            urlMapping.setCreatedDate(LocalDateTime.now());
+            shortUrls.add(urlMappingRepository.save(urlMapping).getShortUrl());
+        }
+
+        principal = UserDetailsImpl.build(owner);
+        statistics.clear();
+    }
+
+    @Test
+    void myUrlsIsOneProjectionQuery() throws Exception {
+        mockMvc.perform(get("/api/urls/myUrls").with(user(principal)))
+                .andExpect(status().isOk());
+
+        assertStatementsAtMost(1);
+        assertNoEntitiesLoaded();
+    }
+
+    @Test
+    void myUrlsPageIsOneProjectionQuery() throws Exception {
+        mockMvc.perform(get("/api/urls/myUrls/page").param("size", "5").with(user(principal)))
+                .andExpect(status().isOk());
+
+        assertStatementsAtMost(1);
+        assertNoEntitiesLoaded();
+    }
+
+    @Test
+    void exportReadsOneProjectionPage() throws Exception {
+        ByteArrayOutputStream export = new ByteArrayOutputStream();
+        urlMappingService.exportUrlsByUser(owner, export);
+
+        assertThat(export.toString(StandardCharsets.UTF_8).lines()).hasSize(LINKS);
+        assertStatementsAtMost(1);
+        assertNoEntitiesLoaded();
+    }
+
+    @Test
+    void redirectLoadsOnlyTheMappingAndIsCachedAfterwards() throws Exception {
+        mockMvc.perform(get("/" + shortUrls.get(0)))
+                .andExpect(status().isFound());
+        assertStatementsAtMost(1);
+        assertNotLoaded(User.class);
+
+        statistics.clear();
+        mockMvc.perform(get("/" + shortUrls.get(0)))
+                .andExpect(status().isFound());
+        assertStatementsAtMost(0);
+    }
+
+    @Test
+    void userLookupsAreServedFromTheSecondLevelCacheExceptTheTokenVersion() {
+        userDetailsService.loadUserByUsername(principal.getUsername());
+
+        statistics.clear();
+        userDetailsService.loadUserByUsername(principal.getUsername());
+        assertThat(statistics.getPrepareStatementCount()).as("JDBC statements prepared by Hibernate").isEqualTo(1);
+        assertThat(statistics.getNaturalIdCacheHitCount()).as("natural-id cache hits").isPositive();
+    }
+
+    @Test
+    void tokenRevocationOnAnotherNodeIsSeenAtOnce() {
+        userDetailsService.loadUserByUsername(principal.getUsername());
+
+        // Another node bumps the version; nothing evicts this node's cached user
+        jdbcTemplate.update("UPDATE users SET token_version = token_version + 1 WHERE id = ?", owner.getId());
+
+        UserDetailsImpl reloaded = (UserDetailsImpl) userDetailsService.loadUserByUsername(principal.getUsername());
+        assertThat(statistics.getNaturalIdCacheHitCount()).as("natural-id cache hits").isPositive();
+        assertThat(reloaded.getTokenVersion()).isEqualTo(owner.getTokenVersion() + 1);
+    }
+
+    @Test
+    void linkAnalyticsReadsRollupsOnly() throws Exception {
+        mockMvc.perform(get("/api/urls/analytics/" + shortUrls.get(1))
+                        .param("startDate", "2024-01-01T00:00:00")
+                        .param("endDate", "2024-01-31T00:00:00")
+                        .with(user(principal)))
+                .andExpect(status().isOk());
+
+        // Mapping lookup, the daily rollup and the hourly rollup of the partial last day
+        assertStatementsAtMost(3);
+        assertNotLoaded(User.class);
+        assertNotLoaded(UrlMapping.class);
+        assertNotLoaded(ClickEvent.class);
+    }
+
+    @Test
+    void totalClicksReadsTheUserRollupOnly() throws Exception {
+        mockMvc.perform(get("/api/urls/totalClicks")
+                        .param("startDate", "2024-01-01")
+                        .param("endDate", "2024-12-31")
+                        .with(user(principal)))
+                .andExpect(status().isOk());
+
+        assertStatementsAtMost(1);
+        assertNoEntitiesLoaded();
+    }
+
+    @Test
+    void shortenInsertsWithoutLoadingTheOwner() throws Exception {
+        mockMvc.perform(post("/api/urls/shorten")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"originalUrl\": \"https://example.com/new\"}")
+                        .with(user(principal)))
+                .andExpect(status().isOk());
+
+        assertStatementsAtMost(1);
+        assertNotLoaded(User.class);
+    }
+
+    @Test
+    void deleteUsesBulkStatementsOnly() throws Exception {
+        mockMvc.perform(delete("/api/urls/" + shortUrls.get(2)).with(user(principal)))
+                .andExpect(status().isNoContent());
+
+        // Ownership lookup, then one DELETE each for clicks, hourly and daily rollups, sketches and the mapping
+        assertStatementsAtMost(6);
+        assertNoEntitiesLoaded();
+    }
+
+    @Test
+    void deleteEvictsOnlyTheDeletedMapping() throws Exception {
+        urlMappingRepository.findBySimpleNaturalId(shortUrls.get(3));
+        urlMappingRepository.findBySimpleNaturalId(shortUrls.get(4));
+
+        mockMvc.perform(delete("/api/urls/" + shortUrls.get(4)).with(user(principal)))
+                .andExpect(status().isNoContent());
+
+        statistics.clear();
+        assertThat(urlMappingRepository.findBySimpleNaturalId(shortUrls.get(3))).isPresent();
+        assertStatementsAtMost(0);
+        assertThat(urlMappingRepository.findBySimpleNaturalId(shortUrls.get(4))).isEmpty();
+    }
+
+    private void assertStatementsAtMost(long expected) {
+        assertThat(statistics.getPrepareStatementCount())
+                .as("JDBC statements prepared by Hibernate")
+                .isLessThanOrEqualTo(expected);
+    }
+
+    private void assertNoEntitiesLoaded() {
+        assertThat(statistics.getEntityLoadCount()).as("entities loaded").isZero();
+        assertThat(statistics.getEntityFetchCount()).as("lazy associations fetched").isZero();
+    }
+
+    private void assertNotLoaded(Class<?> entity) {
+        assertThat(statistics.getEntityStatistics(entity.getName()).getLoadCount())
+                .as(entity.getSimpleName() + " entities loaded")
+                .isZero();
+    }
+}
@@ -0,0 +1,109 @@
+package com.iaschowrai.urlshortner.repository;
+
+import com.iaschowrai.urlshortner.dtos.UrlMappingDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/*
+Reads that gather from every shard, against three in-memory H2 shards holding interleaved ids of two users.
+ */
+class ShardedUrlMappingStoreTests {
+
+    private static final long OWNER = 1L;
+    private static final long OTHER_USER = 2L;
+
+    private final List<JdbcTemplate> databases = new ArrayList<>();
+    private ShardedUrlMappingStore store;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = Long.toString(System.nanoTime(), 36);
+        List<UrlMappingShards.Shard> shards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                    "jdbc:h2:mem:shard" + i + "-" + suffix + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("CREATE TABLE url_mappings (id BIGINT PRIMARY KEY, original_url VARCHAR(255), " +
+                    "short_url VARCHAR(255), click_count INT, created_date TIMESTAMP, user_id BIGINT)");
+            databases.add(jdbcTemplate);
+            shards.add(UrlMappingShards.shard("shard" + i, dataSource));
+        }
+        // Ids 1..30 of the owner round-robin over the shards, with another user's rows in between
+        for (long id = 1; id <= 30; id++) {
+            insert(databases.get((int) (id % 3)), id, OWNER);
+            insert(databases.get((int) ((id + 1) % 3)), 100 + id, OTHER_USER);
+        }
+        store = new ShardedUrlMappingStore(new UrlMappingShards(shards.get(0), shards, false), null,
+                mock(PlatformTransactionManager.class), 1000, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+        databases.forEach(jdbcTemplate -> jdbcTemplate.execute("DROP ALL OBJECTS"));
+    }
+
+    @Test
+    void pagesMergeTheShardsNewestFirstWithoutGapsOrRepeats() {
+        List<Long> seen = new ArrayList<>();
+        long cursor = Long.MAX_VALUE;
+        List<UrlMappingDTO> page;
+        do {
+            page = store.findDtoPageByUserId(OWNER, cursor, 7);
+            assertThat(page).hasSizeLessThanOrEqualTo(7);
+            page.forEach(dto -> seen.add(dto.getId()));
+            if (!page.isEmpty()) {
+                cursor = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == 7);
+
+        assertThat(seen).containsExactlyElementsOf(descending(30, 1));
+    }
+
+    @Test
+    void streamPagesThroughEveryShard() {
+        assertThat(store.streamDtosByUserId(OWNER).map(UrlMappingDTO::getId).toList())
+                .containsExactlyElementsOf(descending(30, 1));
+        assertThat(store.findDtosByUserId(OTHER_USER)).extracting(UrlMappingDTO::getId)
+                .containsExactlyElementsOf(descending(130, 101));
+        assertThat(store.findIdsByUserId(OWNER)).containsExactlyInAnyOrderElementsOf(descending(30, 1));
+    }
+
+    @Test
+    void aRowOnTwoShardsMidMoveIsListedOnceWithItsLargerCount() {
+        // Id 5 lives on shard 2; an interrupted move left a copy on shard 0 that has counted clicks since
+        insert(databases.get(0), 5, OWNER);
+        databases.get(0).update("UPDATE url_mappings SET click_count = 3 WHERE id = 5");
+
+        List<UrlMappingDTO> page = store.findDtoPageByUserId(OWNER, 7, 3);
+        assertThat(page).extracting(UrlMappingDTO::getId).containsExactly(6L, 5L, 4L);
+        assertThat(page.get(1).getClickCount()).isEqualTo(3);
+        assertThat(store.findDtosByUserId(OWNER)).extracting(UrlMappingDTO::getId)
+                .containsExactlyElementsOf(descending(30, 1));
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, long id, long userId) {
+        jdbcTemplate.update("INSERT INTO url_mappings VALUES (?, ?, ?, 0, ?, ?)",
+                id, "https://example.com/" + id, "c" + id, Timestamp.valueOf(LocalDateTime.now()), userId);
+    }
+
+    private static List<Long> descending(long from, long to) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = from; id >= to; id--) {
+            ids.add(id);
+        }
+        return ids;
+    }
+}
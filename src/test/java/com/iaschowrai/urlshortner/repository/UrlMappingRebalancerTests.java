@@ -0,0 +1,95 @@
+package com.iaschowrai.urlshortner.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Moves from the application database onto two in-memory H2 shards, including copies left by an interrupted move.
+ */
+class UrlMappingRebalancerTests {
+
+    private final List<JdbcTemplate> databases = new ArrayList<>();
+    private UrlMappingShards shards;
+    private UrlMappingRebalancer rebalancer;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = Long.toString(System.nanoTime(), 36);
+        List<UrlMappingShards.Shard> all = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                    "jdbc:h2:mem:rebalance" + i + "-" + suffix + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("CREATE TABLE url_mappings (id BIGINT PRIMARY KEY, original_url VARCHAR(255), " +
+                    "short_url VARCHAR(255), click_count INT, created_date TIMESTAMP, user_id BIGINT)");
+            databases.add(jdbcTemplate);
+            all.add(UrlMappingShards.shard("db" + i, dataSource));
+        }
+        // db0 is the application database, db1 and db2 the shards
+        shards = new UrlMappingShards(all.get(0), all.subList(1, 3), true);
+        rebalancer = new UrlMappingRebalancer(shards, new SimpleMeterRegistry(), false, 7, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        databases.forEach(jdbcTemplate -> jdbcTemplate.execute("DROP ALL OBJECTS"));
+    }
+
+    @Test
+    void movesEveryRowToItsOwner() {
+        for (long id = 1; id <= 40; id++) {
+            insert(databases.get(0), id, id);
+        }
+
+        assertThat(rebalancer.rebalance()).isEqualTo(40);
+
+        assertThat(count(databases.get(0))).isZero();
+        assertThat(count(databases.get(1)) + count(databases.get(2))).isEqualTo(40);
+        for (long id = 1; id <= 40; id++) {
+            JdbcTemplate owner = shards.shardFor("c" + id).jdbcTemplate();
+            assertThat(clickCount(owner, id)).isEqualTo(id);
+        }
+        assertThat(rebalancer.rebalance()).isZero();
+    }
+
+    @Test
+    void aLeftoverCopyKeepsTheLargerClickCount() {
+        JdbcTemplate ownerOf1 = shards.shardFor("c1").jdbcTemplate();
+        JdbcTemplate ownerOf2 = shards.shardFor("c2").jdbcTemplate();
+        // The copy of 1 counted clicks after the interrupted move, the source of 2 did
+        insert(databases.get(0), 1, 5);
+        insert(ownerOf1, 1, 9);
+        insert(databases.get(0), 2, 12);
+        insert(ownerOf2, 2, 4);
+
+        assertThat(rebalancer.rebalance()).isEqualTo(2);
+
+        assertThat(count(databases.get(0))).isZero();
+        assertThat(clickCount(ownerOf1, 1)).isEqualTo(9);
+        assertThat(clickCount(ownerOf2, 2)).isEqualTo(12);
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, long id, long clicks) {
+        jdbcTemplate.update("INSERT INTO url_mappings VALUES (?, ?, ?, ?, ?, 1)",
+                id, "https://example.com/" + id, "c" + id, clicks, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private static long count(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM url_mappings", Long.class);
+    }
+
+    private static long clickCount(JdbcTemplate jdbcTemplate, long id) {
+        return jdbcTemplate.queryForObject("SELECT click_count FROM url_mappings WHERE id = ?", Long.class, id);
+    }
+}
@@ -0,0 +1,66 @@
+package com.iaschowrai.urlshortner.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Shard wiring against in-memory H2 databases standing in for the application database and two shards.
+ */
+class UrlMappingShardConfigTests {
+
+    private String suffix;
+    private JdbcTemplate primary;
+    private UrlMappingShards shards;
+
+    @BeforeEach
+    void setUp() {
+        suffix = Long.toString(System.nanoTime(), 36);
+        primary = new JdbcTemplate(new DriverManagerDataSource(h2Url("primary")));
+        primary.execute("CREATE TABLE url_mappings (id BIGINT PRIMARY KEY, short_url VARCHAR(255))");
+        primary.execute("CREATE TABLE click_events (id BIGINT PRIMARY KEY, url_mapping_id BIGINT NOT NULL, " +
+                "CONSTRAINT fk_click_events_url_mapping FOREIGN KEY (url_mapping_id) REFERENCES url_mappings (id))");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (shards != null) {
+            shards.close();
+        }
+        primary.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void enablingShardsDropsForeignKeysToTheLegacyTableAndCreatesShardTables() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("url.shards.enabled", "true")
+                .withProperty("url.shards.urls", h2Url("shard0") + "," + h2Url("shard1"));
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(h2Url("primary"));
+        properties.setUsername("sa");
+        properties.setPassword("");
+
+        shards = new UrlMappingShardConfig().urlMappingShards(primary,
+                new DataSourceTransactionManager(primary.getDataSource()), properties, environment,
+                new SimpleMeterRegistry());
+
+        // A click on a mapping that only exists on a shard must be accepted
+        primary.update("INSERT INTO click_events (id, url_mapping_id) VALUES (1, 42)");
+        assertThat(shards.shards()).hasSize(2);
+        for (UrlMappingShards.Shard shard : shards.shards()) {
+            assertThat(shard.jdbcTemplate().queryForObject("SELECT COUNT(*) FROM url_mappings", Long.class)).isZero();
+        }
+    }
+
+    private String h2Url(String database) {
+        return "jdbc:h2:mem:" + database + "-" + suffix + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+}
@@ -0,0 +1,92 @@
+package com.iaschowrai.urlshortner.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UrlMappingShardsTests {
+
+    private static final int CODES = 100_000;
+
+    private final UrlMappingShards.Shard primary = shard("primary");
+
+    @Test
+    void withoutShardsThePrimaryOwnsEveryCode() {
+        UrlMappingShards shards = new UrlMappingShards(primary, List.of(), true);
+
+        assertThat(shards.isSharded()).isFalse();
+        assertThat(shards.isRebalancing()).isFalse();
+        assertThat(shards.shardFor("AbCdEf1")).isSameAs(primary);
+        assertThat(shards.databases()).containsExactly(primary);
+        assertThat(shards.fallbacksFor(primary)).isEmpty();
+    }
+
+    @Test
+    void codesAreSpreadEvenlyAndPlacedTheSameWayEveryTime() {
+        List<UrlMappingShards.Shard> four = shards(4);
+        UrlMappingShards shards = new UrlMappingShards(primary, four, false);
+        UrlMappingShards again = new UrlMappingShards(shard("other-primary"), shards(4), false);
+
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < CODES; i++) {
+            String code = code(i);
+            UrlMappingShards.Shard owner = shards.shardFor(code);
+            owned.merge(owner.name(), 1, Integer::sum);
+            assertThat(again.shardFor(code).name()).isEqualTo(owner.name());
+        }
+
+        assertThat(owned).hasSize(4);
+        owned.values().forEach(count -> assertThat(count).isBetween(CODES / 4 - 1_000, CODES / 4 + 1_000));
+        assertThat(shards.databases()).containsExactlyElementsOf(four);
+    }
+
+    @Test
+    void appendingAShardOnlyMovesCodesToTheNewShard() {
+        UrlMappingShards before = new UrlMappingShards(primary, shards(4), false);
+        UrlMappingShards after = new UrlMappingShards(primary, shards(5), false);
+
+        int moved = 0;
+        for (int i = 0; i < CODES; i++) {
+            String code = code(i);
+            String previousOwner = before.shardFor(code).name();
+            String owner = after.shardFor(code).name();
+            if (!owner.equals(previousOwner)) {
+                assertThat(owner).isEqualTo("shard4");
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(CODES / 5 - 1_000, CODES / 5 + 1_000);
+    }
+
+    @Test
+    void whileRebalancingEveryOtherDatabaseIsAFallback() {
+        List<UrlMappingShards.Shard> two = shards(2);
+        UrlMappingShards shards = new UrlMappingShards(primary, two, true);
+
+        assertThat(shards.isRebalancing()).isTrue();
+        assertThat(shards.databases()).containsExactly(two.get(0), two.get(1), primary);
+        assertThat(shards.fallbacksFor(two.get(1))).containsExactly(two.get(0), primary);
+    }
+
+    private static List<UrlMappingShards.Shard> shards(int count) {
+        List<UrlMappingShards.Shard> shards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            shards.add(shard("shard" + i));
+        }
+        return shards;
+    }
+
+    // Placement only looks at the position of a shard, so no database is needed
+    private static UrlMappingShards.Shard shard(String name) {
+        return new UrlMappingShards.Shard(name, null, null);
+    }
+
+    private static String code(int i) {
+        return Integer.toString(i * 7919 + 1_000_000, 36);
+    }
+}
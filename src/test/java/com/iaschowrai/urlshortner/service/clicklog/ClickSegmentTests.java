@@ -0,0 +1,98 @@
+package com.iaschowrai.urlshortner.service.clicklog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickSegmentTests {
+
+    private static final long BASE = 1_700_000_000L;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void appendedRowsAreDecodedFromEveryForm() throws IOException {
+        ClickSegment active = ClickSegment.create(directory, 7, 100, BASE);
+        active.append(BASE + 60, 11L, 1L, values("news.example", "DE", "Firefox", "desktop"));
+        active.append(BASE + 5, 12L, 2L, values("(direct)", "US", "Chrome", "mobile"));
+        active.append(BASE + 3_600, 11L, 1L, values("news.example", "US", "Chrome", "mobile"));
+        active.commit();
+
+        assertRows(active);
+
+        // An active segment reopened after a crash, then its sealed, compact copy
+        ClickSegment recovered = ClickSegment.open(directory.resolve(ClickSegment.name(7) + ClickSegment.ACTIVE_SUFFIX));
+        assertRows(recovered);
+        ClickSegment sealed = recovered.seal();
+        assertRows(sealed);
+        assertThat(sealed.sizeInBytes()).isEqualTo(32 + 13 * 3);
+        assertRows(ClickSegment.open(directory.resolve(ClickSegment.name(7) + ClickSegment.SEALED_SUFFIX)));
+    }
+
+    @Test
+    void rowsAfterTheLastCommitAreNotRecovered() throws IOException {
+        ClickSegment active = ClickSegment.create(directory, 8, 10, BASE);
+        active.append(BASE, 1L, null, values("a.example", "DE", "Firefox", "desktop"));
+        active.commit();
+        active.append(BASE + 1, 2L, null, values("b.example", "DE", "Firefox", "desktop"));
+
+        ClickSegment recovered = ClickSegment.open(directory.resolve(ClickSegment.name(8) + ClickSegment.ACTIVE_SUFFIX));
+
+        assertThat(recovered.rowCount()).isEqualTo(1);
+        assertThat(recovered.userId(recovered.mappingCode(0))).isZero();
+    }
+
+    @Test
+    void valuesBeyondTheDictionaryAreFoldedIntoOther() throws IOException {
+        ClickSegment active = ClickSegment.create(directory, 9, 300, BASE);
+        for (int i = 0; i < 300; i++) {
+            active.append(BASE + i, 1L, 1L, values("host-" + i, "country-" + i, "Firefox", "desktop"));
+        }
+
+        // One byte per country code, and code 0 is reserved
+        assertThat(active.dictionarySize(ClickDimension.COUNTRY)).isEqualTo(256);
+        assertThat(active.value(ClickDimension.COUNTRY, active.code(ClickDimension.COUNTRY, 299))).isEqualTo(ClickSegment.OTHER);
+        assertThat(active.value(ClickDimension.REFERRER, active.code(ClickDimension.REFERRER, 299))).isEqualTo("host-299");
+        assertThat(active.selectMappings(List.of(2L), null)).isNull();
+        assertThat(active.selectMappings(null, 1L)).containsExactly(true);
+    }
+
+    private static void assertRows(ClickSegment segment) {
+        assertThat(segment.sequence()).isEqualTo(7);
+        assertThat(segment.rowCount()).isEqualTo(3);
+        assertThat(segment.minEpochSecond()).isEqualTo(BASE + 5);
+        assertThat(segment.maxEpochSecond()).isEqualTo(BASE + 3_600);
+        assertThat(segment.mappingCount()).isEqualTo(2);
+
+        assertThat(segment.epochSecond(1)).isEqualTo(BASE + 5);
+        assertThat(segment.mappingId(segment.mappingCode(2))).isEqualTo(11L);
+        assertThat(segment.userId(segment.mappingCode(1))).isEqualTo(2L);
+        assertThat(decode(segment, 0)).containsExactly("news.example", "DE", "Firefox", "desktop");
+        assertThat(decode(segment, 1)).containsExactly("(direct)", "US", "Chrome", "mobile");
+        assertThat(decode(segment, 2)).containsExactly("news.example", "US", "Chrome", "mobile");
+        assertThat(segment.selectMappings(List.of(12L), null)).containsExactly(false, true);
+    }
+
+    private static String[] decode(ClickSegment segment, int row) {
+        String[] decoded = new String[ClickDimension.values().length];
+        for (ClickDimension dimension : ClickDimension.values()) {
+            decoded[dimension.ordinal()] = segment.value(dimension, segment.code(dimension, row));
+        }
+        return decoded;
+    }
+
+    private static String[] values(String referrer, String country, String browser, String device) {
+        String[] values = new String[ClickDimension.values().length];
+        values[ClickDimension.REFERRER.ordinal()] = referrer;
+        values[ClickDimension.COUNTRY.ordinal()] = country;
+        values[ClickDimension.BROWSER.ordinal()] = browser;
+        values[ClickDimension.DEVICE.ordinal()] = device;
+        return values;
+    }
+}
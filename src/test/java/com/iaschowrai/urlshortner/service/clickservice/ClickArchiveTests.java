@@ -0,0 +1,84 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClickArchiveTests {
+
+    private static final YearMonth MONTH = YearMonth.of(2024, 2);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void rowsAreReadBackInOrder() throws IOException {
+        List<Map.Entry<Long, LocalDateTime>> rows = List.of(
+                Map.entry(3L, LocalDateTime.of(2024, 2, 1, 0, 0)),
+                Map.entry(3L, LocalDateTime.of(2024, 2, 1, 0, 0)),
+                Map.entry(3L, LocalDateTime.of(2024, 2, 29, 23, 59, 59)),
+                Map.entry(4L, LocalDateTime.of(2024, 2, 10, 12, 0, 1)),
+                Map.entry(1_000_000_000_000L, LocalDateTime.of(2024, 2, 2, 8, 30)));
+        Path file = directory.resolve("clicks-2024-02.clka");
+        try (ClickArchive.Writer writer = ClickArchive.create(file, MONTH)) {
+            for (Map.Entry<Long, LocalDateTime> row : rows) {
+                writer.append(row.getKey(), row.getValue());
+            }
+            assertThat(writer.rows()).isEqualTo(rows.size());
+        }
+
+        List<Map.Entry<Long, LocalDateTime>> read = new ArrayList<>();
+        YearMonth month = ClickArchive.read(file, (urlMappingId, clickDate) -> read.add(Map.entry(urlMappingId, clickDate)));
+
+        assertThat(month).isEqualTo(MONTH);
+        assertThat(read).containsExactlyElementsOf(rows);
+    }
+
+    @Test
+    void emptyArchiveHasNoRows() throws IOException {
+        Path file = directory.resolve("empty.clka");
+        ClickArchive.create(file, MONTH).close();
+
+        List<Long> read = new ArrayList<>();
+        assertThat(ClickArchive.read(file, (urlMappingId, clickDate) -> read.add(urlMappingId))).isEqualTo(MONTH);
+        assertThat(read).isEmpty();
+    }
+
+    @Test
+    void unsortedRowsAreRejected() throws IOException {
+        try (ClickArchive.Writer writer = ClickArchive.create(directory.resolve("unsorted.clka"), MONTH)) {
+            writer.append(5L, LocalDateTime.of(2024, 2, 3, 0, 0));
+            assertThatThrownBy(() -> writer.append(5L, LocalDateTime.of(2024, 2, 2, 0, 0)))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> writer.append(4L, LocalDateTime.of(2024, 2, 4, 0, 0)))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void truncatedArchiveIsDetected() throws IOException {
+        Path file = directory.resolve("truncated.clka");
+        try (ClickArchive.Writer writer = ClickArchive.create(file, MONTH)) {
+            for (int i = 0; i < 10_000; i++) {
+                writer.append(i, LocalDateTime.of(2024, 2, 1, 0, 0).plusSeconds(i));
+            }
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertThatThrownBy(() -> ClickArchive.read(file, (urlMappingId, clickDate) -> { }))
+                .isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,97 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+import com.iaschowrai.urlshortner.repository.UrlMappingShards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickCounterTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private ClickCounter clickCounter;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:click-counter-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE url_mappings (id BIGINT PRIMARY KEY, click_count INT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO url_mappings (id, click_count) VALUES (1, 5), (2, 0)");
+        clickCounter = new ClickCounter(new UrlMappingShards(UrlMappingShards.shard("primary", dataSource), List.of(), false),
+                new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void pendingDeltasAreAppliedOnFlush() {
+        clickCounter.increment(1L);
+        clickCounter.increment(1L);
+        clickCounter.increment(2L);
+        assertThat(clickCounter.getPendingDelta(1L)).isEqualTo(2);
+
+        clickCounter.flush();
+
+        assertThat(clickCount(1)).isEqualTo(7);
+        assertThat(clickCount(2)).isEqualTo(1);
+        assertThat(clickCounter.getPendingDelta(1L)).isZero();
+
+        // Nothing is applied twice
+        clickCounter.flush();
+        assertThat(clickCount(1)).isEqualTo(7);
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            threads.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    clickCounter.increment(2L);
+                    if (i % 2_500 == 0) {
+                        clickCounter.flush();
+                    }
+                }
+            });
+        }
+        threads.shutdown();
+        assertThat(threads.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        clickCounter.shutdown();
+
+        assertThat(clickCount(2)).isEqualTo(40_000);
+        assertThat(clickCounter.getPendingDelta(2L)).isZero();
+    }
+
+    @Test
+    void discardedAndUnmatchedDeltasAreDropped() {
+        clickCounter.increment(1L);
+        clickCounter.discard(1L);
+        // No row: the mapping was deleted on another node
+        clickCounter.increment(3L);
+
+        clickCounter.flush();
+        clickCounter.flush();
+
+        assertThat(clickCount(1)).isEqualTo(5);
+        assertThat(clickCounter.getPendingDelta(1L)).isZero();
+        assertThat(clickCounter.getPendingDelta(3L)).isZero();
+    }
+
+    private int clickCount(long id) {
+        return jdbcTemplate.queryForObject("SELECT click_count FROM url_mappings WHERE id = ?", Integer.class, id);
+    }
+}
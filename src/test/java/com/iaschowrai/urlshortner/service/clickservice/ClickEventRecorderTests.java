@@ -0,0 +1,86 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickEventRecorderTests {
+
+    private final List<Long> inserted = new ArrayList<>();
+    private final List<Long> handedOver = new ArrayList<>();
+    private final DeletedUrlMappings deletedUrlMappings = new DeletedUrlMappings(60_000, 100);
+
+    private final ClickEventRecorder recorder = new ClickEventRecorder(recordingJdbcTemplate(), new NoOpTransactionManager(),
+            new SimpleMeterRegistry(), List.of(batch -> batch.forEach(click -> handedOver.add(click.getUrlMappingId()))),
+            deletedUrlMappings, 100, 10, ClickOverflowPolicy.DROP);
+
+    @Test
+    void clicksQueuedForADeletedMappingAreDiscarded() {
+        recorder.record(click(1L));
+        recorder.record(click(2L));
+        recorder.record(click(1L));
+        deletedUrlMappings.add(2L);
+
+        recorder.flush();
+
+        assertThat(inserted).containsExactly(1L, 1L);
+        assertThat(handedOver).containsExactly(1L, 1L);
+        assertThat(recorder.getQueueSize()).isZero();
+    }
+
+    @Test
+    void aBatchOfOnlyDeletedMappingsWritesNothing() {
+        deletedUrlMappings.add(3L);
+        recorder.record(click(3L));
+
+        recorder.flush();
+
+        assertThat(inserted).isEmpty();
+        assertThat(handedOver).isEmpty();
+    }
+
+    private static ClickRecord click(Long urlMappingId) {
+        return new ClickRecord(urlMappingId, 7L, LocalDateTime.now(), null, null, null);
+    }
+
+    private JdbcTemplate recordingJdbcTemplate() {
+        return new JdbcTemplate() {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                           ParameterizedPreparedStatementSetter<T> pss) {
+                batchArgs.forEach(clickRecord -> inserted.add(((ClickRecord) clickRecord).getUrlMappingId()));
+                return new int[0][];
+            }
+        };
+    }
+
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
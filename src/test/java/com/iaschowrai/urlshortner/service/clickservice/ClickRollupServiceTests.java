@@ -0,0 +1,77 @@
+package com.iaschowrai.urlshortner.service.clickservice;
+
+import com.iaschowrai.urlshortner.repository.UrlClickRollupDailyRepository;
+import com.iaschowrai.urlshortner.repository.UrlClickRollupHourlyRepository;
+import com.iaschowrai.urlshortner.repository.UserClickRollupDailyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/*
+The startup backfill runs for a database with clicks but no rollups, and only then.
+ */
+class ClickRollupServiceTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    void anUpgradedDatabaseIsBackfilled() {
+        givenRows(false, true);
+
+        service(false).backfillIfNeeded();
+
+        verify(jdbcTemplate).update("DELETE FROM click_rollups_daily");
+        verify(jdbcTemplate).update(contains("INSERT INTO click_rollups_daily"));
+    }
+
+    @Test
+    void existingRollupsAreKept() {
+        givenRows(true, true);
+
+        service(false).backfillIfNeeded();
+
+        verify(jdbcTemplate, never()).update(anyString());
+    }
+
+    @Test
+    void anEmptyDatabaseIsNotBackfilled() {
+        givenRows(false, false);
+
+        service(false).backfillIfNeeded();
+
+        verify(jdbcTemplate, never()).update(anyString());
+    }
+
+    @Test
+    void backfillOnStartupForcesARebuild() {
+        givenRows(true, true);
+
+        service(true).backfillIfNeeded();
+
+        verify(jdbcTemplate).update("DELETE FROM click_rollups_daily");
+    }
+
+    private void givenRows(boolean rollups, boolean clickEvents) {
+        when(jdbcTemplate.queryForList(contains("FROM click_rollups_daily"))).thenReturn(rows(rollups));
+        when(jdbcTemplate.queryForList(contains("FROM click_events"))).thenReturn(rows(clickEvents));
+    }
+
+    private static List<Map<String, Object>> rows(boolean present) {
+        return present ? List.of(Map.of("1", 1)) : List.of();
+    }
+
+    private ClickRollupService service(boolean backfillOnStartup) {
+        return new ClickRollupService(jdbcTemplate, mock(UrlClickRollupHourlyRepository.class),
+                mock(UrlClickRollupDailyRepository.class), mock(UserClickRollupDailyRepository.class),
+                backfillOnStartup, false);
+    }
+}
@@ -0,0 +1,60 @@
+package com.iaschowrai.urlshortner.service.sketch;
+
+import com.iaschowrai.urlshortner.dtos.AudienceDTO;
+import com.iaschowrai.urlshortner.service.clickservice.ClickRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Flushes lock and merge the stored rows of several links and days at once; a second flush must build on the first.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ClickSketchServiceTests {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @Autowired
+    private ClickSketchService clickSketchService;
+
+    @Test
+    void repeatedFlushesMergeIntoTheStoredSketches() {
+        long first = System.nanoTime();
+        long second = first + 1;
+
+        clickSketchService.onClickBatch(clicks(first, 0, 40, "https://news.example/a"));
+        clickSketchService.onClickBatch(clicks(second, 0, 10, null));
+        clickSketchService.flush();
+        clickSketchService.onClickBatch(clicks(first, 40, 60, "https://news.example/b"));
+        clickSketchService.onClickBatch(clicks(second, 0, 10, null));
+        clickSketchService.flush();
+
+        AudienceDTO firstAudience = clickSketchService.getAudience(first, DAY, DAY.plusDays(1), 1);
+        assertThat(firstAudience.getUniqueVisitors()).isBetween(57L, 63L);
+        assertThat(firstAudience.getTopReferrers()).hasSize(1);
+        assertThat(firstAudience.getTopReferrers().get(0).getValue()).isEqualTo("news.example");
+        assertThat(firstAudience.getTopReferrers().get(0).getCount()).isEqualTo(60);
+
+        // The same ten visitors on both flushes
+        assertThat(clickSketchService.getAudience(second, DAY, DAY.plusDays(1), 1).getUniqueVisitors()).isEqualTo(10);
+    }
+
+    // Clicks of visitors from..to-1, alternating between two days
+    private static List<ClickRecord> clicks(long urlMappingId, int from, int to, String referrer) {
+        List<ClickRecord> clicks = new ArrayList<>();
+        for (int visitor = from; visitor < to; visitor++) {
+            LocalDateTime clickDate = DAY.plusDays(visitor % 2).atTime(12, 0);
+            clicks.add(new ClickRecord(urlMappingId, 1L, clickDate, referrer, "Mozilla/5.0", "10.0.0." + visitor));
+        }
+        return clicks;
+    }
+}
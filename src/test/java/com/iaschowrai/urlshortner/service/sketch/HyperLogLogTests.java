@@ -0,0 +1,74 @@
+package com.iaschowrai.urlshortner.service.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+class HyperLogLogTests {
+
+    // 1.04 / sqrt(2^12) is about 1.6%; three standard errors
+    private static final double MAX_RELATIVE_ERROR = 0.05;
+
+    @Test
+    void estimateStaysWithinTheErrorBound() {
+        for (int distinct : new int[]{10, 1_000, 100_000}) {
+            HyperLogLog sketch = offered(12, "visitor-", distinct);
+            assertThat((double) sketch.estimate()).isCloseTo(distinct, offset(
+                    Math.max(1, distinct * MAX_RELATIVE_ERROR)));
+        }
+    }
+
+    @Test
+    void repeatedItemsAreCountedOnce() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 500; i++) {
+                sketch.offer(HyperLogLog.hash("visitor-" + i));
+            }
+        }
+        assertThat(sketch.estimate()).isBetween(475L, 525L);
+    }
+
+    @Test
+    void mergeEstimatesTheUnion() {
+        HyperLogLog first = offered(12, "a-", 20_000);
+        HyperLogLog second = offered(12, "b-", 20_000);
+        // Overlaps the first completely
+        first.merge(offered(12, "a-", 10_000));
+        first.merge(second);
+
+        assertThat((double) first.estimate()).isCloseTo(40_000, offset(40_000 * MAX_RELATIVE_ERROR));
+    }
+
+    @Test
+    void sparseAndDenseFormsSurviveSerialization() {
+        HyperLogLog sparse = offered(12, "s-", 100);
+        HyperLogLog dense = offered(12, "d-", 50_000);
+
+        HyperLogLog sparseCopy = HyperLogLog.fromBytes(sparse.toBytes());
+        HyperLogLog denseCopy = HyperLogLog.fromBytes(dense.toBytes());
+
+        assertThat(sparseCopy.estimate()).isEqualTo(sparse.estimate());
+        assertThat(denseCopy.estimate()).isEqualTo(dense.estimate());
+        // The sparse form is far smaller than one byte per register
+        assertThat(sparse.toBytes().length).isLessThan(1 << 10);
+        assertThat(dense.toBytes().length).isEqualTo(2 + (1 << 12));
+    }
+
+    @Test
+    void sketchesOfDifferentPrecisionDoNotMerge() {
+        assertThatThrownBy(() -> new HyperLogLog(12).merge(new HyperLogLog(10)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HyperLogLog(17)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static HyperLogLog offered(int precision, String prefix, int distinct) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for (int i = 0; i < distinct; i++) {
+            sketch.offer(HyperLogLog.hash(prefix + i));
+        }
+        return sketch;
+    }
+}
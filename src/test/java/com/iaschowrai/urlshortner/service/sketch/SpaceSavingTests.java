@@ -0,0 +1,85 @@
+package com.iaschowrai.urlshortner.service.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpaceSavingTests {
+
+    private static final int CAPACITY = 16;
+
+    @Test
+    void countsAreExactWhileEveryItemFits() {
+        SpaceSaving sketch = new SpaceSaving(CAPACITY);
+        for (int i = 0; i < 10; i++) {
+            for (int n = 0; n <= i; n++) {
+                sketch.offer("host-" + i);
+            }
+        }
+
+        List<SpaceSaving.Entry> top = sketch.top(3);
+        assertThat(top).extracting(SpaceSaving.Entry::item).containsExactly("host-9", "host-8", "host-7");
+        assertThat(top).extracting(SpaceSaving.Entry::count).containsExactly(10L, 9L, 8L);
+        assertThat(top).extracting(SpaceSaving.Entry::error).containsOnly(0L);
+    }
+
+    @Test
+    void frequentItemsAreKeptAndCountsStayWithinTheirError() {
+        Map<String, Long> exact = new HashMap<>();
+        SpaceSaving sketch = new SpaceSaving(CAPACITY);
+        Random random = new Random(42);
+        int total = 100_000;
+        for (int i = 0; i < total; i++) {
+            // A few heavy hitters in a long tail of rare items
+            String item = random.nextInt(4) == 0 ? "tail-" + random.nextInt(50_000) : "heavy-" + random.nextInt(5);
+            exact.merge(item, 1L, Long::sum);
+            sketch.offer(item);
+        }
+
+        Map<String, SpaceSaving.Entry> kept = new HashMap<>();
+        sketch.top(CAPACITY).forEach(entry -> kept.put(entry.item(), entry));
+        exact.forEach((item, count) -> {
+            if (count > total / CAPACITY) {
+                assertThat(kept).containsKey(item);
+            }
+        });
+        kept.values().forEach(entry -> {
+            long trueCount = exact.get(entry.item());
+            assertThat(entry.count()).isGreaterThanOrEqualTo(trueCount);
+            assertThat(entry.count() - entry.error()).isLessThanOrEqualTo(trueCount);
+        });
+    }
+
+    @Test
+    void mergeAddsCountsOfTheSameItem() {
+        SpaceSaving first = new SpaceSaving(CAPACITY);
+        SpaceSaving second = new SpaceSaving(CAPACITY);
+        first.offer("news.example");
+        first.offer("news.example");
+        second.offer("news.example");
+        second.offer("(direct)");
+
+        first.merge(second);
+
+        assertThat(first.top(2)).containsExactly(
+                new SpaceSaving.Entry("news.example", 3, 0),
+                new SpaceSaving.Entry("(direct)", 1, 0));
+    }
+
+    @Test
+    void serializationKeepsCountsAndErrors() {
+        SpaceSaving sketch = new SpaceSaving(4);
+        for (int i = 0; i < 100; i++) {
+            sketch.offer("host-" + (i % 7));
+        }
+
+        SpaceSaving copy = SpaceSaving.fromBytes(sketch.toBytes());
+
+        assertThat(copy.top(4)).isEqualTo(sketch.top(4));
+    }
+}
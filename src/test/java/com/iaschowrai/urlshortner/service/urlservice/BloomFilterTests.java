@@ -0,0 +1,53 @@
+package com.iaschowrai.urlshortner.service.urlservice;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class BloomFilterTests {
+
+    private static final int INSERTIONS = 50_000;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    @Test
+    void everyInsertedValueIsFound() {
+        BloomFilter filter = new BloomFilter(INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.put("code-" + i);
+        }
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertThat(filter.mightContain("code-" + i)).isTrue();
+        }
+        assertThat(filter.insertions()).isEqualTo(INSERTIONS);
+    }
+
+    @Test
+    void falsePositivesStayNearTheConfiguredRate() {
+        BloomFilter filter = new BloomFilter(INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.put("code-" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat((double) falsePositives / probes).isLessThan(2 * FALSE_POSITIVE_PROBABILITY);
+        assertThat(filter.expectedFalsePositiveProbability()).isCloseTo(FALSE_POSITIVE_PROBABILITY, offset(0.002));
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(1_000, FALSE_POSITIVE_PROBABILITY);
+
+        assertThat(filter.mightContain("code-1")).isFalse();
+        assertThat(filter.expectedFalsePositiveProbability()).isZero();
+        // About 9.6 bits per insertion at 1%, rounded up to whole words
+        assertThat(filter.sizeInBytes()).isBetween(1_150L, 1_250L);
+    }
+}
@@ -0,0 +1,102 @@
+package com.iaschowrai.urlshortner.service.urlservice;
+
+import com.iaschowrai.urlshortner.models.ShortCodeSequence;
+import com.iaschowrai.urlshortner.repository.ShortCodeSequenceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SequenceShortCodeGeneratorTests {
+
+    private static final long CODE_SPACE = Base62.capacity(7);
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @Test
+    void scrambledCodesAreDistinctAndInsideTheCodeSpace() {
+        SequenceShortCodeGenerator generator = generator(null, true, 42L);
+        Set<Long> values = new HashSet<>();
+        // The lowest ids and the highest ones, where the Feistel output has to be cycle-walked back into range
+        for (long id = 0; id < 100_000; id++) {
+            values.add(decode(generator.toShortCode(id)));
+        }
+        for (long id = CODE_SPACE - 100_000; id < CODE_SPACE; id++) {
+            values.add(decode(generator.toShortCode(id)));
+        }
+
+        assertThat(values).hasSize(200_000);
+        assertThat(values).allMatch(value -> value >= 0 && value < CODE_SPACE);
+    }
+
+    @Test
+    void theKeyAloneDecidesThePermutation() {
+        SequenceShortCodeGenerator generator = generator(null, true, 42L);
+        SequenceShortCodeGenerator sameKey = generator(null, true, 42L);
+        SequenceShortCodeGenerator otherKey = generator(null, true, 43L);
+
+        int differing = 0;
+        for (long id = 1; id <= 1_000; id++) {
+            assertThat(sameKey.toShortCode(id)).isEqualTo(generator.toShortCode(id));
+            if (!otherKey.toShortCode(id).equals(generator.toShortCode(id))) {
+                differing++;
+            }
+        }
+        assertThat(differing).isGreaterThan(990);
+    }
+
+    @Test
+    void unscrambledCodesAreTheIdInBase62() {
+        SequenceShortCodeGenerator generator = generator(null, false, null);
+
+        assertThat(generator.toShortCode(0)).isEqualTo("AAAAAAA");
+        assertThat(generator.toShortCode(62)).isEqualTo("AAAAABA");
+        assertThat(decode(generator.toShortCode(123_456_789L))).isEqualTo(123_456_789L);
+        assertThatThrownBy(() -> generator.toShortCode(CODE_SPACE)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void scramblingRequiresAKey() {
+        assertThatThrownBy(() -> generator(null, true, null))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("url.codes.scramble-key");
+    }
+
+    @Test
+    void idsAreHandedOutFromLeasedBlocks() {
+        ShortCodeSequence sequence = new ShortCodeSequence("short_code", 1);
+        ShortCodeSequenceRepository repository = mock(ShortCodeSequenceRepository.class);
+        when(repository.findByName(anyString())).thenReturn(Optional.of(sequence));
+        SequenceShortCodeGenerator generator = new SequenceShortCodeGenerator(repository, transactionManager, 3, true, 42L);
+
+        long[] ids = new long[7];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = generator.nextId();
+        }
+
+        assertThat(ids).containsExactly(1, 2, 3, 4, 5, 6, 7);
+        // Three blocks of three were leased
+        assertThat(sequence.getNextValue()).isEqualTo(10);
+    }
+
+    private SequenceShortCodeGenerator generator(ShortCodeSequenceRepository repository, boolean scramble, Long key) {
+        return new SequenceShortCodeGenerator(repository, transactionManager, 10_000, scramble, key);
+    }
+
+    private static long decode(String code) {
+        assertThat(code).hasSize(7);
+        long value = 0;
+        for (char c : code.toCharArray()) {
+            value = value * Base62.BASE + Base62.ALPHABET.indexOf(c);
+        }
+        return value;
+    }
+}